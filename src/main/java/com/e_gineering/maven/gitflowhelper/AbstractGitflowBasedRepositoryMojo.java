@@ -15,6 +15,7 @@ import org.apache.maven.shared.utils.StringUtils;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.codehaus.plexus.util.FileUtils;
 import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.DefaultSessionData;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.artifact.DefaultArtifact;
@@ -25,37 +26,28 @@ import org.eclipse.aether.repository.RepositoryPolicy;
 import org.eclipse.aether.resolution.ArtifactRequest;
 import org.eclipse.aether.resolution.ArtifactResolutionException;
 import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.transfer.ChecksumFailureException;
 
 import javax.annotation.Nullable;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-
-import static java.nio.charset.StandardCharsets.UTF_8;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Common configuration and plumbing (support methods) for Repository operations on Gitflow Mojo.
  */
 abstract class AbstractGitflowBasedRepositoryMojo extends AbstractGitflowBranchMojo {
-    private static final String CATALOG_HEADER = "[artifacts]";
 
-    private static PrintWriter newPrintWriter(File catalog) throws FileNotFoundException {
-        Objects.requireNonNull(catalog, "catalog must not be null");
-        return new PrintWriter(new OutputStreamWriter(new FileOutputStream(catalog), UTF_8));
-    }
-    
     @Parameter(property = "releaseDeploymentRepositoryId", required = true)
     String releaseDeploymentRepository;
 
@@ -76,6 +68,49 @@ abstract class AbstractGitflowBasedRepositoryMojo extends AbstractGitflowBranchM
     
     @Parameter(defaultValue = "${project.build.directory}", required = true)
     private File buildDirectory;
+
+    /**
+     * The most artifacts to resolve at once when promoting or attaching deployed artifacts. 1 resolves them one at a time.
+     */
+    @Parameter(defaultValue = "4", property = "promotionConcurrency", required = true)
+    int promotionConcurrency;
+
+    /**
+     * Whether resolved artifacts are hard linked into the build directory (when on the same file system) rather than
+     * cloned or copied. A hard link shares its content with the repository the artifact was resolved to, so only enable
+     * this if nothing rewrites the attached files in place, as the archivers of a later <code>package</code> do. Entries
+     * of the promotion cache are never linked.
+     */
+    @Parameter(defaultValue = "false", property = "linkArtifacts", required = true)
+    boolean linkArtifacts;
+
+    /**
+     * Attach resolved artifacts where they are in the local repository, rather than placing them in the build directory.
+     * Has no effect when artifacts are resolved into a temporary local repository, which is removed afterwards.
+     */
+    @Parameter(defaultValue = "false", property = "attachInPlace", required = true)
+    boolean attachInPlace;
+
+    /**
+     * Where release artifacts resolved from a remote repository (bypassing the local repository) are kept between builds,
+     * keyed by their coordinates and checksum.
+     */
+    @Parameter(defaultValue = "${user.home}/.m2/gitflow-helper-promotion-cache", property = "promotionCacheDirectory", required = true)
+    File promotionCacheDirectory;
+
+    /**
+     * The size, in megabytes, past which the least recently used artifacts are evicted from the promotion cache. 0 disables
+     * the cache, resolving into a temporary local repository instead.
+     */
+    @Parameter(defaultValue = "2048", property = "promotionCacheSize", required = true)
+    long promotionCacheSize;
+
+    /**
+     * Whether to attach the size and checksum of each catalogued artifact, alongside the catalog, for promotion to verify
+     * them against and to skip those already present.
+     */
+    @Parameter(defaultValue = "true", property = "catalogChecksums", required = true)
+    boolean catalogChecksums;
     
     @Component
     private RepositorySystem repositorySystem;
@@ -104,62 +139,77 @@ abstract class AbstractGitflowBasedRepositoryMojo extends AbstractGitflowBranchM
         return repo.get();
     }
 
+    /**
+     * Determines if an OTHER branch matches the (resolved) otherDeployBranchPattern.
+     *
+     * @param gitBranchInfo The branch being built
+     * @return true if artifacts built from the branch should be deployed.
+     */
+    boolean isOtherDeployBranch(final GitBranchInfo gitBranchInfo) {
+        String otherBranchesToDeploy = resolveExpression(otherDeployBranchPattern);
+        return !"".equals(otherBranchesToDeploy) && BranchClassifier.compile(otherBranchesToDeploy).matcher(gitBranchInfo.getName()).matches();
+    }
+
     /**
      * Creates and attaches an artifact containing a list of attached artifacts, each line in the file contains
-     * group:artifact:type:classifier:version
+     * group:artifact:type:classifier:version. The size and checksum of each are attached alongside it.
      */
     void attachArtifactCatalog() throws MojoExecutionException {
         getLog().info("Cataloging Artifacts for promotion & reattachment: " + project.getBuild().getDirectory());
 
         File catalog = new File(buildDirectory, project.getArtifact().getArtifactId() + ".txt");
 
-        if (!catalog.delete()) {
-            getLog().debug("Failed to remove catalog file: " + catalog);
-        }
+        List<String> coordinates = new ArrayList<>();
+        List<File> files = new ArrayList<>();
+        if (hasCataloguableArtifacts()) {
+            if (hasFile(project.getArtifact())) {
+                catalogArtifact(coordinates, files, project.getArtifact());
+            } else {
+                getLog().info("No primary artifact to catalog, cataloging attached artifacts instead.");
+            }
 
-        if (!buildDirectory.mkdirs()) {
-            getLog().debug("Failed to create build directory: " + buildDirectory);
+            // Iterate the attached artifacts.
+            for (Artifact artifact : project.getAttachedArtifacts()) {
+                catalogArtifact(coordinates, files, artifact);
+            }
+        } else {
+            getLog().info(
+                    "No artifacts were catalogued."
+            );
         }
 
-        PrintWriter writer = null;
+        File checksums = new File(buildDirectory, project.getArtifact().getArtifactId() + "-checksums.txt");
         try {
-            writer = newPrintWriter(catalog);
-
-            // add catalog header, ensuring that no zero-byte catalog is created
-            writer.println(CATALOG_HEADER);
-
-            if (hasCataloguableArtifacts()) {
-                if (hasFile(project.getArtifact())) {
-                    catalogArtifact(writer, project.getArtifact());
-                } else {
-                    getLog().info("No primary artifact to catalog, cataloging attached artifacts instead.");
-                }
-
-                // Iterate the attached artifacts.
-                for (Artifact artifact : project.getAttachedArtifacts()) {
-                    catalogArtifact(writer, artifact);
-                }
+            // The files are checksummed several at once, then the catalog written in full and moved into place, so
+            // nothing ever sees a partial catalog.
+            List<ArtifactCatalog.Entry> entries;
+            if (catalogChecksums) {
+                entries = ArtifactCatalog.describe(coordinates, files, promotionConcurrency);
+                AtomicFiles.write(checksums, ArtifactCatalog.writeChecksums(entries));
             } else {
-                getLog().info(
-                        "No artifacts were catalogued."
-                );
+                entries = coordinates.stream().map(ArtifactCatalog.Entry::new).collect(Collectors.toList());
             }
-
-            getLog().info("Attaching catalog artifact: " + catalog);
-            projectHelper.attachArtifact(project, "txt", "catalog", catalog);
+            AtomicFiles.write(catalog, ArtifactCatalog.write(entries));
         } catch (IOException ioe) {
             throw new MojoExecutionException("Failed to create catalog of artifacts", ioe);
-        } finally {
-            if (writer != null) {
-                writer.close();
-            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted creating catalog of artifacts", ie);
+        }
+
+        getLog().info("Attaching catalog artifact: " + catalog);
+        projectHelper.attachArtifact(project, "txt", "catalog", catalog);
+        if (catalogChecksums) {
+            // Not catalogued itself, so earlier versions of the plugin promote the catalog as they always have.
+            projectHelper.attachArtifact(project, "txt", ArtifactCatalog.CHECKSUMS_CLASSIFIER, checksums);
         }
     }
 
-    private void catalogArtifact(PrintWriter writer, Artifact artifact) {
+    private void catalogArtifact(List<String> coordinates, List<File> files, Artifact artifact) {
         String coords = getCoordinates(artifact);
         getLog().info("Cataloging: " + coords);
-        writer.println(coords);
+        coordinates.add(coords);
+        files.add(artifact.getFile());
     }
 
     /**
@@ -186,109 +236,125 @@ abstract class AbstractGitflowBasedRepositoryMojo extends AbstractGitflowBranchM
         }
         List<RemoteRepository> remoteRepositories = RepositoryUtils.toRepos(remoteArtifactRepositories);
         
-        // A place to store our resolved files...
-        List<ArtifactResult> resolvedArtifacts = new ArrayList<>();
-
         // Use a customized repository session, setup to force a few behaviors we like.
         DefaultRepositorySystemSession tempSession = new DefaultRepositorySystemSession(repositorySystemSession);
         tempSession.setUpdatePolicy(RepositoryPolicy.UPDATE_POLICY_ALWAYS);
 
         File tempRepo = null;
+        PromotionCache cache = null;
         if (disableLocal) {
             getLog().info("Disabling local repository @ " + tempSession.getLocalRepository().getBasedir());
             try {
-                tempRepo = Files.createTempDirectory("gitflow-helper-maven-plugin-repo").toFile();
+                if (promotionCacheSize > 0) {
+                    cache = new PromotionCache(promotionCacheDirectory, promotionCacheSize * 1024 * 1024);
+                    tempRepo = cache.newWorkDirectory();
+                    getLog().info("Using promotion cache @ " + promotionCacheDirectory.getAbsolutePath());
+                } else {
+                    tempRepo = Files.createTempDirectory("gitflow-helper-maven-plugin-repo").toFile();
+                }
 
                 getLog().info("Using temporary local repository @ " + tempRepo.getAbsolutePath());
                 tempSession.setLocalRepositoryManager(localRepositoryManagerFactory.newInstance(tempSession, new LocalRepository(tempRepo)));
+                // Nothing else resolves into the temporary repository, so there's no need for Maven (3.9+) to lock it,
+                // which it does for all the artifacts of a version at once, resolving them one at a time.
+                tempSession.setData(new DefaultSessionData());
+                tempSession.setConfigProperty("aether.syncContext.named.factory", "noop");
             } catch (Exception ex) {
                 getLog().warn("Failed to disable local repository path.", ex);
+                cache = null;
             }
         }
         tempSession.setReadOnly();
 
+        // Checksums are resolved on their own, to key the promotion cache, and have no checksums of their own to verify.
+        DefaultRepositorySystemSession checksumSession = new DefaultRepositorySystemSession(tempSession);
+        checksumSession.setChecksumPolicy(RepositoryPolicy.CHECKSUM_POLICY_IGNORE);
+        checksumSession.setReadOnly();
+
         List<ArtifactRequest> requiredArtifacts = new ArrayList<>();
+        Map<org.eclipse.aether.artifact.Artifact, ArtifactCatalog.Entry> catalogued = new HashMap<>();
+
+        // Get the current build artifact coordinates, so that we replace rather than re-attach.
+        String projectArtifactCoordinates = getCoordinates(project.getArtifact());
+        getLog().debug("Current Project Coordinates: " + projectArtifactCoordinates);
 
         // Locate our text catalog classifier file. :-)
-        BufferedReader reader = null;
+        ArtifactResult catalogResult;
+        ArtifactResult checksumsResult = null;
         try {
             DefaultArtifact artifact = new DefaultArtifact(
                     project.getGroupId(), project.getArtifactId(), "catalog", "txt", project.getVersion()
             );
             ArtifactRequest request = new ArtifactRequest(artifact, remoteRepositories, null);
-            ArtifactResult catalogResult = repositorySystem.resolveArtifact(tempSession, request);
-            resolvedArtifacts.add(catalogResult);
+            catalogResult = repositorySystem.resolveArtifact(tempSession, request);
+
+            // Catalogs staged by earlier versions of the plugin, or without checksums, have no checksums file.
+            try {
+                checksumsResult = repositorySystem.resolveArtifact(tempSession, new ArtifactRequest(new DefaultArtifact(
+                        project.getGroupId(), project.getArtifactId(), ArtifactCatalog.CHECKSUMS_CLASSIFIER, "txt", project.getVersion()
+                ), remoteRepositories, null));
+            } catch (ArtifactResolutionException are) {
+                getLog().debug("No artifact catalog checksums, promoting without them: " + are.getMessage());
+            }
 
             if (catalogResult.isResolved()) {
-                // Read the file line by line...
-                FileInputStream fis = new FileInputStream(catalogResult.getArtifact().getFile());
-                InputStreamReader isr = new InputStreamReader(fis, UTF_8);
-                reader = new BufferedReader(isr);
-
-                String coords;
-                boolean firstLine = true;
-                while ((coords = reader.readLine()) != null) {
-                    coords = coords.trim();
-
-                    // test for catalog header for bacvkwards compatibility
-                    if (!coords.isEmpty() && !(firstLine && CATALOG_HEADER.equals(coords))) {
-                        // should be a reifiable GAV coordinate therefore add a new ArtifactRequest
-                        requiredArtifacts.add(
-                                new ArtifactRequest(new DefaultArtifact(coords), remoteRepositories, null)
-                        );
-                    }
-                    firstLine = false;
+                for (ArtifactCatalog.Entry entry : ArtifactCatalog.read(catalogResult.getArtifact().getFile(),
+                        checksumsResult != null ? checksumsResult.getArtifact().getFile() : null)) {
+                    // should be a reifiable GAV coordinate therefore add a new ArtifactRequest
+                    DefaultArtifact catalogArtifact = new DefaultArtifact(entry.getCoordinates());
+                    requiredArtifacts.add(
+                            new ArtifactRequest(catalogArtifact, remoteRepositories, null)
+                    );
+                    catalogued.put(catalogArtifact, entry);
                 }
             }
         } catch (ArtifactResolutionException are) {
             throw new MojoExecutionException("Could not locate artifact catalog in remote repository.", are);
         } catch (IOException ioe) {
             throw new MojoExecutionException("Could not read artifact catalog", ioe);
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException ignored) {
-                }
-            }
         }
 
-        // Resolve the artifacts from the catalog (if there are any)
+        // Resolve the artifacts from the catalog (if there are any), several at once. Each is placed in the build
+        // directory (or left in place) as soon as it's resolved, then either set as the project artifact or attached.
+        // Artifacts with a catalogued checksum are verified against it once resolved, or not resolved at all if a copy
+        // is in the promotion cache or the build directory already.
+        boolean inPlace = attachInPlace && tempRepo == null;
+        PromotionCache promotionCache = cache;
+        ArtifactPipeline.Resolver resolver = artifactRequest -> verify(
+                repositorySystem.resolveArtifact(tempSession, artifactRequest), catalogued.get(artifactRequest.getArtifact()));
+        if (cache != null) {
+            resolver = cache.resolver(
+                    checksumRequest -> repositorySystem.resolveArtifact(checksumSession, checksumRequest), resolver,
+                    catalogued::get, getLog());
+        }
+        if (!inPlace) {
+            resolver = presentInBuildDirectory(resolver, catalogued);
+        }
+        ArtifactPipeline pipeline = new ArtifactPipeline(promotionConcurrency, resolver,
+                artifactResult -> placeInBuildDirectory(artifactResult, inPlace, promotionCache));
         try {
-            resolvedArtifacts.addAll(repositorySystem.resolveArtifacts(tempSession, requiredArtifacts));
+            attachResolvedArtifact(placeInBuildDirectory(catalogResult, inPlace, promotionCache), projectArtifactCoordinates);
+            if (checksumsResult != null) {
+                attachResolvedArtifact(placeInBuildDirectory(checksumsResult, inPlace, promotionCache), projectArtifactCoordinates);
+            }
+            long start = System.nanoTime();
+            pipeline.run(requiredArtifacts, artifactResult -> attachResolvedArtifact(artifactResult, projectArtifactCoordinates));
+            getLog().info("Resolved " + requiredArtifacts.size() + " catalogued artifacts in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms, " + promotionConcurrency + " at a time.");
         } catch (ArtifactResolutionException are) {
             throw new MojoExecutionException("Failed to resolve the required project files from repository: " + sourceRepository, are);
-        }
-
-        // Get the current build artifact coordinates, so that we replace rather than re-attach.
-        String projectArtifactCoordinates = getCoordinates(project.getArtifact());
-        getLog().debug("Current Project Coordinates: " + projectArtifactCoordinates);
-
-        // For each artifactResult, copy it to the build directory,
-        // update the resolved artifact data to point to the new file.
-        // Then either set the project artifact to point to the file in the build directory, or attach the artifact.
-        for (ArtifactResult artifactResult : resolvedArtifacts) {
-            try {
-                FileUtils.copyFileToDirectory(artifactResult.getArtifact().getFile(), buildDirectory);
-                artifactResult.setArtifact(artifactResult.getArtifact().setFile(new File(buildDirectory, artifactResult.getArtifact().getFile().getName())));
-
-                if (getCoordinates(artifactResult).equals(projectArtifactCoordinates)) {
-                    getLog().debug("    Setting primary artifact: " + artifactResult.getArtifact().getFile());
-                    project.getArtifact().setFile(artifactResult.getArtifact().getFile());
-                } else {
-                    getLog().debug(
-                            "    Attaching artifact: " + getCoordinates(artifactResult) + " "
-                                    + artifactResult.getArtifact().getFile());
-                    projectHelper.attachArtifact(project, artifactResult.getArtifact().getExtension(), artifactResult.getArtifact().getClassifier(), artifactResult.getArtifact().getFile());
-                }
-            } catch (IOException ioe) {
-                throw new MojoExecutionException("Failed to copy resolved artifact to target directory.", ioe);
-            }
+        } catch (IOException ioe) {
+            throw new MojoExecutionException("Failed to copy resolved artifact to target directory.", ioe);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted resolving the required project files from repository: " + sourceRepository, ie);
         }
 
         // Restore the local repository, again using reflection.
         if (disableLocal) {
-            if (tempRepo != null) {
+            if (cache != null) {
+                cache.cleanup(tempRepo, getLog());
+            } else if (tempRepo != null) {
                 try {
                     FileUtils.deleteDirectory(tempRepo);
                 } catch (IOException e) {
@@ -298,6 +364,89 @@ abstract class AbstractGitflowBasedRepositoryMojo extends AbstractGitflowBranchM
         }
     }
 
+    /**
+     * Verifies a resolved artifact against its catalogued size and checksum, if it has them.
+     *
+     * @throws ArtifactResolutionException if the resolved file isn't the catalogued artifact.
+     */
+    private static ArtifactResult verify(final ArtifactResult artifactResult, @Nullable final ArtifactCatalog.Entry entry)
+            throws ArtifactResolutionException {
+        if (entry == null) {
+            return artifactResult;
+        }
+        try {
+            entry.verify(artifactResult.getArtifact().getFile());
+            return artifactResult;
+        } catch (ChecksumFailureException | IOException ex) {
+            throw new ArtifactResolutionException(Collections.singletonList(artifactResult),
+                    "Resolved " + artifactResult.getArtifact() + " does not match the artifact catalog: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Wraps a resolver so that catalogued release artifacts already in the build directory, with the catalogued size and
+     * checksum, aren't resolved again.
+     */
+    private ArtifactPipeline.Resolver presentInBuildDirectory(final ArtifactPipeline.Resolver resolver,
+                                                              final Map<org.eclipse.aether.artifact.Artifact, ArtifactCatalog.Entry> catalogued) {
+        return artifactRequest -> {
+            ArtifactCatalog.Entry entry = catalogued.get(artifactRequest.getArtifact());
+            if (entry != null && !artifactRequest.getArtifact().isSnapshot()) {
+                File present = new File(buildDirectory, new File(LocalPromotion.path(artifactRequest.getArtifact())).getName());
+                try {
+                    if (entry.matches(present)) {
+                        getLog().debug("    Already present: " + present);
+                        ArtifactResult artifactResult = new ArtifactResult(artifactRequest);
+                        artifactResult.setArtifact(artifactRequest.getArtifact().setFile(present));
+                        return artifactResult;
+                    }
+                } catch (IOException ioe) {
+                    getLog().debug("    Unable to check " + present + ", resolving it: " + ioe.getMessage());
+                }
+            }
+            return resolver.resolve(artifactRequest);
+        };
+    }
+
+    /**
+     * Places a resolved artifact in the build directory, cloning rather than copying it where possible.
+     *
+     * @param inPlace true to leave the artifact where it was resolved to instead.
+     * @param cache   The promotion cache in use, if any. Its entries are never linked, as they outlive the build.
+     * @return The result, updated to point to the placed file.
+     */
+    private ArtifactResult placeInBuildDirectory(final ArtifactResult artifactResult, final boolean inPlace,
+                                                 @Nullable final PromotionCache cache) throws IOException {
+        File resolved = artifactResult.getArtifact().getFile();
+        if (inPlace) {
+            getLog().debug("    Attaching in place: " + resolved);
+            return artifactResult;
+        }
+
+        File placed = new File(buildDirectory, resolved.getName());
+        boolean link = linkArtifacts && (cache == null || !cache.contains(resolved));
+        ArtifactFiles.Method method = ArtifactFiles.place(resolved, placed, link);
+        getLog().debug("    Placed (" + method + "): " + resolved + " -> " + placed);
+
+        artifactResult.setArtifact(artifactResult.getArtifact().setFile(placed));
+        return artifactResult;
+    }
+
+    /**
+     * Sets the project artifact to the (copied) artifact if it has the project's coordinates, otherwise attaches it.
+     */
+    private void attachResolvedArtifact(final ArtifactResult artifactResult, final String projectArtifactCoordinates) {
+        if (getCoordinates(artifactResult).equals(projectArtifactCoordinates)) {
+            getLog().debug("    Setting primary artifact: " + artifactResult.getArtifact().getFile());
+            project.getArtifact().setFile(artifactResult.getArtifact().getFile());
+        } else {
+            getLog().debug(
+                    "    Attaching artifact: " + getCoordinates(artifactResult) + " "
+                            + artifactResult.getArtifact().getFile());
+            projectHelper.attachArtifact(project, artifactResult.getArtifact().getExtension(), artifactResult.getArtifact().getClassifier(), artifactResult.getArtifact().getFile());
+        }
+    }
+
     /**
      * Returns true if the project has any artifacts to be catalogued.
      *
@@ -1,6 +1,9 @@
 package com.e_gineering.maven.gitflowhelper;
 
-import com.e_gineering.maven.gitflowhelper.properties.PropertyResolver;
+import com.e_gineering.maven.gitflowhelper.properties.EnvironmentSnapshot;
+import com.e_gineering.maven.gitflowhelper.properties.PropertySnapshot;
+import com.e_gineering.maven.gitflowhelper.properties.PropertyTemplate;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -8,24 +11,29 @@ import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.scm.manager.ScmManager;
-import org.codehaus.plexus.util.cli.CommandLineUtils;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.Properties;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Abstracts Per-Branch builds & Logging
  */
 public abstract class AbstractGitflowBranchMojo extends AbstractMojo {
 
-    private Properties systemEnvVars = new Properties();
-
     @Component
     protected ScmManager scmManager;
 
+    @Component
+    private GitBranchResolver branchResolver;
+
     @Parameter(defaultValue = "${project}", readonly = true)
     protected MavenProject project;
 
+    @Parameter(defaultValue = "${session}", readonly = true)
+    protected MavenSession session;
+
     @Parameter(defaultValue = "(origin/)?master", property = "masterBranchPattern", required = true)
     private String masterBranchPattern;
 
@@ -47,6 +55,54 @@ public abstract class AbstractGitflowBranchMojo extends AbstractMojo {
     @Parameter(property = "gitBranchExpression", required = false)
     private String gitBranchExpression;
 
+    /**
+     * Additional, named kinds of branches, each built as one of the gitflow branch types. Checked in order, after the
+     * gitflow branch patterns.
+     */
+    @Parameter
+    private List<BranchCategory> branchCategories;
+
+    /**
+     * Comma separated, ordered list of the sources to ask for the current branch: any of jenkins, github, gitlab and scm.
+     * The first to name a branch wins. The gitBranchExpression is only resolved if none of them can.
+     */
+    @Parameter(defaultValue = BranchProvider.DEFAULT_ORDER, property = "branchProviders", required = true)
+    private String branchProviders;
+
+    /**
+     * The longest (in seconds) to wait for any git command. When exceeded, git is killed, and the branch is resolved
+     * from the gitBranchExpression instead.
+     */
+    @Parameter(defaultValue = "30", property = "gitTimeout", required = true)
+    private int gitTimeout;
+
+    /**
+     * When true, branch names resolved from git are cached on disk, and reused by later builds of the same working
+     * copy for as long as HEAD, the refs and the branch patterns are unchanged.
+     */
+    @Parameter(defaultValue = "false", property = "branchCache", required = true)
+    private boolean branchCache;
+
+    /**
+     * The directory to keep the branch cache in. Defaults to the build directory of the top level project.
+     */
+    @Parameter(property = "branchCacheDirectory")
+    private File branchCacheDirectory;
+
+    /**
+     * When true, the resolved branch is published as the <code>gitflow.branch.name</code>,
+     * <code>gitflow.branch.type</code>, <code>gitflow.branch.pattern</code>, <code>gitflow.branch.version</code> and
+     * <code>gitflow.head.sha</code> project (and session) properties, for use by other plugins.
+     */
+    @Parameter(defaultValue = "true", property = "exportBranchProperties", required = true)
+    private boolean exportBranchProperties;
+
+    /**
+     * A file to also write the exported branch properties to, ie: <code>${project.build.directory}/gitflow-branch.properties</code>
+     */
+    @Parameter(property = "branchPropertiesFile")
+    private File branchPropertiesFile;
+
     /**
      * If this is "equals" then exact version matching to branch name matching is preformed.
      * Otherwise, this is treated as a "startsWith".
@@ -54,6 +110,9 @@ public abstract class AbstractGitflowBranchMojo extends AbstractMojo {
     @Parameter(defaultValue = "equals", property = "releaseBranchMatchType", required = true)
     String releaseBranchMatchType;
 
+    /* The properties expressions are resolved against, copied once for this execution. */
+    private PropertySnapshot propertySnapshot;
+
     /**
      * Convenience Method exposing Property Resolving for subclasses.
      *
@@ -61,7 +120,27 @@ public abstract class AbstractGitflowBranchMojo extends AbstractMojo {
      * @return
      */
     protected String resolveExpression(final String expression) {
-        return PropertyResolver.resolveValue(expression, project.getProperties(), systemEnvVars);
+        return PropertyTemplate.forSession(session, expression).resolve(getPropertySnapshot());
+    }
+
+    /**
+     * Returns an immutable view of the project properties, system properties and environment, taken the first time
+     * it's needed in this execution, so that resolving expressions doesn't lock the (shared) properties themselves.
+     *
+     * @return The snapshot
+     */
+    protected PropertySnapshot getPropertySnapshot() {
+        if (propertySnapshot == null) {
+            propertySnapshot = PropertySnapshot.of(project.getProperties(), EnvironmentSnapshot.forSession(session));
+        }
+        return propertySnapshot;
+    }
+
+    /**
+     * Discards the property snapshot, after this execution has changed properties.
+     */
+    protected void invalidatePropertySnapshot() {
+        propertySnapshot = null;
     }
 
     /**
@@ -75,23 +154,52 @@ public abstract class AbstractGitflowBranchMojo extends AbstractMojo {
     protected abstract void execute(final GitBranchInfo currentBranch) throws MojoExecutionException, MojoFailureException;
 
     public void execute() throws MojoExecutionException, MojoFailureException {
-        // Weather we resolve a single branch name or not, it won't hurt to run it through property replacement.
-        try {
-            systemEnvVars = CommandLineUtils.getSystemEnvVars();
-        } catch (IOException ioe) {
-            throw new MojoExecutionException("Unable to read System Envirionment Variables: ", ioe);
-        }
-
         // Validate the match type.
         checkReleaseBranchMatchTypeParam();
 
-        ScmUtils scmUtils = new ScmUtils(systemEnvVars, scmManager, project, getLog(), masterBranchPattern, supportBranchPattern, releaseBranchPattern, hotfixBranchPattern, developmentBranchPattern);
-        GitBranchInfo branchInfo = scmUtils.resolveBranchInfo(gitBranchExpression);
+        List<BranchProvider> providers;
+        try {
+            providers = BranchProvider.parse(branchProviders);
+        } catch (IllegalArgumentException iae) {
+            throw new MojoFailureException(iae.getMessage());
+        }
+
+        ScmUtils scmUtils;
+        try {
+            scmUtils = new ScmUtils(EnvironmentSnapshot.forSession(session), scmManager, project, getLog(), masterBranchPattern, supportBranchPattern, releaseBranchPattern, hotfixBranchPattern, developmentBranchPattern,
+                    branchCategories == null ? Collections.emptyList() : branchCategories, providers, gitTimeout);
+        } catch (IllegalArgumentException iae) {
+            throw new MojoFailureException(iae.getMessage());
+        }
+        File branchCacheFile = null;
+        if (branchCache) {
+            branchCacheFile = GitBranchResolver.branchCacheFile(branchCacheDirectory, session);
+        }
+        GitBranchInfo branchInfo = branchResolver.resolve(session, scmUtils, gitBranchExpression, branchCacheFile);
 
         getLog().debug("Building for: " + branchInfo);
+
+        if (exportBranchProperties) {
+            exportBranchProperties(branchInfo);
+        }
         execute(branchInfo);
     }
 
+    private void exportBranchProperties(final GitBranchInfo branchInfo) throws MojoExecutionException {
+        File gitRoot = ScmUtils.findGitRoot(project.getBasedir());
+        String headSha = gitRoot == null ? null : branchResolver.headSha(session, gitRoot, gitTimeout * 1000L);
+        BranchProperties branchProperties = new BranchProperties(branchInfo, headSha);
+        branchProperties.export(session, project);
+
+        if (branchPropertiesFile != null) {
+            try {
+                branchProperties.write(branchPropertiesFile);
+            } catch (IOException ioe) {
+                throw new MojoExecutionException("Unable to write the branch properties to: " + branchPropertiesFile, ioe);
+            }
+        }
+    }
+
     private void checkReleaseBranchMatchTypeParam() throws MojoFailureException {
         if (!"equals".equals(releaseBranchMatchType) && !"startsWith".equals(releaseBranchMatchType)) {
             throw new MojoFailureException("'releaseBranchMatchType' should be either 'equals' or 'startsWith'. Found '" + releaseBranchMatchType + "'.");
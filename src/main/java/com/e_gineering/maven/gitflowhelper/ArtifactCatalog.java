@@ -0,0 +1,301 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import org.eclipse.aether.transfer.ChecksumFailureException;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads and writes the catalog of a project's artifacts, which is attached so that they can be promoted or reattached.
+ * <p/>
+ * The catalog is an <code>[artifacts]</code> header followed by the coordinates of each artifact,
+ * group:artifact:type:classifier:version, one per line, just as every version of the plugin has read it. The size and
+ * SHA-256 checksum of each artifact's file are kept alongside it, in a checksums file with a <code>[checksums]</code>
+ * header and a line of coordinates, size and checksum per artifact, so that a copy can be verified, or found to be
+ * present already, without downloading it. Catalogs without a checksums file are read all the same.
+ */
+final class ArtifactCatalog {
+
+    static final String HEADER = "[artifacts]";
+    static final String CHECKSUMS_HEADER = "[checksums]";
+
+    /* The classifier of the checksums file, which is attached alongside the catalog. */
+    static final String CHECKSUMS_CLASSIFIER = "catalog-checksums";
+
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * An artifact in the catalog.
+     */
+    static final class Entry {
+        private final String coordinates;
+        private final long size;
+        private final String sha256;
+
+        Entry(final String coordinates) {
+            this(coordinates, -1, null);
+        }
+
+        Entry(final String coordinates, final long size, @Nullable final String sha256) {
+            this.coordinates = coordinates;
+            this.size = size;
+            this.sha256 = sha256;
+        }
+
+        /**
+         * @return The artifact's coordinates, group:artifact:type:classifier:version
+         */
+        String getCoordinates() {
+            return coordinates;
+        }
+
+        /**
+         * @return The size of the artifact's file, or -1 if it isn't known.
+         */
+        long getSize() {
+            return size;
+        }
+
+        /**
+         * @return The SHA-256 checksum of the artifact's file, or null if it isn't known.
+         */
+        @Nullable
+        String getSha256() {
+            return sha256;
+        }
+
+        /**
+         * @return true if the file is a copy of the catalogued artifact. Always false if the checksum isn't known.
+         * @throws IOException if the file can't be read
+         */
+        boolean matches(final File file) throws IOException {
+            return sha256 != null && file.isFile() && file.length() == size && sha256.equals(sha256(file));
+        }
+
+        /**
+         * Verifies that the file is a copy of the catalogued artifact, if its checksum is known.
+         *
+         * @throws ChecksumFailureException if it isn't
+         * @throws IOException              if the file can't be read
+         */
+        void verify(final File file) throws ChecksumFailureException, IOException {
+            if (sha256 == null) {
+                return;
+            }
+            if (file.length() != size) {
+                throw new ChecksumFailureException("Size of " + file + " is " + file.length() + ", catalogued as " + size);
+            }
+            String actual = sha256(file);
+            if (!sha256.equals(actual)) {
+                throw new ChecksumFailureException(sha256, actual);
+            }
+        }
+    }
+
+    private ArtifactCatalog() {
+    }
+
+    /**
+     * Reads a catalog, along with its checksums file if it has one.
+     *
+     * @param catalog   The catalog file
+     * @param checksums The checksums file, or null if there is none
+     * @return The artifacts, in the order they're listed, with their sizes and checksums where known.
+     * @throws IOException if either file can't be read, or isn't in a format this version understands.
+     */
+    static List<Entry> read(final File catalog, @Nullable final File checksums) throws IOException {
+        Map<String, Entry> described = new HashMap<>();
+        if (checksums != null) {
+            for (String line : lines(checksums, CHECKSUMS_HEADER, true)) {
+                Entry entry = parse(line, checksums);
+                described.put(entry.getCoordinates(), entry);
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        for (String coordinates : lines(catalog, HEADER, false)) {
+            Entry entry = described.get(coordinates);
+            entries.add(entry != null ? entry : new Entry(coordinates));
+        }
+        return entries;
+    }
+
+    /**
+     * @return The non-blank lines of the file, after its header.
+     */
+    private static List<String> lines(final File file, final String header, final boolean headerRequired) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8))) {
+            String line;
+            boolean firstLine = true;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (firstLine && (headerRequired || line.startsWith("["))) {
+                    // test for catalog header for backwards compatibility, as the first catalogs had none.
+                    if (!header.equals(line)) {
+                        throw new IOException("Unsupported format " + line + ": " + file);
+                    }
+                } else if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+                firstLine = false;
+            }
+        }
+        return lines;
+    }
+
+    private static Entry parse(final String line, final File checksums) throws IOException {
+        String[] fields = WHITESPACE.split(line);
+        if (fields.length == 3 && SHA256.matcher(fields[2]).matches()) {
+            try {
+                return new Entry(fields[0], Long.parseLong(fields[1]), fields[2]);
+            } catch (NumberFormatException nfe) {
+                // Reported below.
+            }
+        }
+        throw new IOException("Malformed artifact checksum '" + line + "': " + checksums);
+    }
+
+    /**
+     * Writes a catalog, in the format every version of the plugin reads.
+     *
+     * @param entries The artifacts
+     * @return The content of the catalog
+     */
+    static byte[] write(final List<Entry> entries) {
+        StringWriter content = new StringWriter();
+        PrintWriter writer = new PrintWriter(content);
+
+        // add catalog header, ensuring that no zero-byte catalog is created
+        writer.println(HEADER);
+        for (Entry entry : entries) {
+            writer.println(entry.coordinates);
+        }
+        writer.flush();
+        return content.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * Writes the checksums file of a catalog. Artifacts without a file are left out.
+     *
+     * @param entries The artifacts
+     * @return The content of the checksums file
+     */
+    static byte[] writeChecksums(final List<Entry> entries) {
+        StringWriter content = new StringWriter();
+        PrintWriter writer = new PrintWriter(content);
+
+        writer.println(CHECKSUMS_HEADER);
+        for (Entry entry : entries) {
+            if (entry.sha256 != null) {
+                writer.println(entry.coordinates + " " + entry.size + " " + entry.sha256);
+            }
+        }
+        writer.flush();
+        return content.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * Catalogs artifacts, checksumming their files several at once.
+     *
+     * @param coordinates The coordinates of each artifact
+     * @param files       The file of each artifact, or null if it has none
+     * @param concurrency The most files to checksum at once. Anything less than 2 checksums them in the calling thread.
+     * @return The entries, in the order given.
+     * @throws IOException          if a file can't be read
+     * @throws InterruptedException if interrupted while waiting for a checksum
+     */
+    static List<Entry> describe(final List<String> coordinates, final List<File> files, final int concurrency)
+            throws IOException, InterruptedException {
+        List<Entry> entries = new ArrayList<>(coordinates.size());
+        if (concurrency < 2 || coordinates.size() < 2) {
+            for (int i = 0; i < coordinates.size(); i++) {
+                entries.add(describe(coordinates.get(i), files.get(i)));
+            }
+            return entries;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, coordinates.size()), runnable -> {
+            Thread thread = new Thread(runnable, "gitflow-helper-catalog-checksums");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Entry>> described = new ArrayList<>(coordinates.size());
+            for (int i = 0; i < coordinates.size(); i++) {
+                String coords = coordinates.get(i);
+                File file = files.get(i);
+                described.add(executor.submit(() -> describe(coords, file)));
+            }
+            for (Future<Entry> entry : described) {
+                entries.add(entry.get());
+            }
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+        return entries;
+    }
+
+    private static Entry describe(final String coordinates, @Nullable final File file) throws IOException {
+        if (file == null || !file.isFile()) {
+            return new Entry(coordinates);
+        }
+        return new Entry(coordinates, file.length(), sha256(file));
+    }
+
+    /**
+     * @return The SHA-256 checksum of the file's content.
+     */
+    static String sha256(final File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException(nsae);
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,169 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import org.codehaus.plexus.util.Os;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Places resolved artifacts in the build directory without copying their bytes through the JVM whenever possible: a
+ * hard link first, if asked for, then a copy-on-write clone (reflink) on file systems which support one, and only then
+ * a copy.
+ */
+final class ArtifactFiles {
+
+    /**
+     * How an artifact was placed.
+     */
+    enum Method {
+        /** A hard link to the resolved file. */
+        LINK,
+        /** A copy-on-write clone of the resolved file. */
+        REFLINK,
+        /** A copy of the resolved file. */
+        COPY
+    }
+
+    /* There's no API for FICLONE, so clones are made by cp, which uses it (or clonefile on macOS). */
+    private static final String[] CLONE_COMMAND = Os.isFamily(Os.FAMILY_WINDOWS) ? null
+            : Os.isFamily(Os.FAMILY_MAC) ? new String[]{"cp", "-c"} : new String[]{"cp", "--reflink=always"};
+
+    /* The (source, target) file stores a clone has failed between, which aren't tried again. */
+    private static final Set<List<FileStore>> NO_CLONES = ConcurrentHashMap.newKeySet();
+
+    private ArtifactFiles() {
+    }
+
+    /**
+     * Places the source file at the target, replacing any file already there.
+     *
+     * @param source The resolved artifact
+     * @param target Where to place it
+     * @param link   true to try a hard link first. A hard link shares its content with the source, so anything modifying
+     *               the target in place modifies the source too.
+     * @return How the file was placed
+     * @throws IOException if it couldn't be placed at all
+     */
+    static Method place(final File source, final File target, final boolean link) throws IOException {
+        Path from = source.toPath();
+        Path to = target.toPath();
+        Files.createDirectories(to.toAbsolutePath().getParent());
+
+        if (Files.exists(to)) {
+            // A link left by an earlier build is replaced, unless links are wanted.
+            if (Files.isSameFile(from, to) && (link || from.toAbsolutePath().equals(to.toAbsolutePath()))) {
+                return Method.LINK;
+            }
+            Files.delete(to);
+        }
+
+        if (link) {
+            try {
+                Files.createLink(to, from);
+                return Method.LINK;
+            } catch (IOException | UnsupportedOperationException | SecurityException ex) {
+                // ie: a different file system, or one without hard links. Fall through.
+            }
+        }
+
+        if (clone(from, to)) {
+            Files.setLastModifiedTime(to, Files.getLastModifiedTime(from));
+            return Method.REFLINK;
+        }
+
+        copy(from, to);
+        return Method.COPY;
+    }
+
+    /**
+     * Places the source file at the target by way of a temporary file alongside it, so that the target appears complete
+     * or not at all.
+     *
+     * @param source The file to publish
+     * @param target Where to publish it, replacing any file already there
+     * @return How the file was placed
+     * @throws IOException if it couldn't be placed at all
+     */
+    static Method publish(final File source, final File target) throws IOException {
+        Path directory = target.getAbsoluteFile().toPath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, target.getName(), ".tmp");
+        try {
+            Files.delete(temp);
+            Method method = place(source, temp.toFile(), true);
+            try {
+                Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException amnse) {
+                Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return method;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static boolean clone(final Path from, final Path to) throws IOException {
+        if (CLONE_COMMAND == null) {
+            return false;
+        }
+        FileStore sourceStore = Files.getFileStore(from);
+        FileStore targetStore = Files.getFileStore(to.toAbsolutePath().getParent());
+        if (!sourceStore.equals(targetStore)) {
+            // A clone can't cross file systems, which says nothing about cloning within either of them.
+            return false;
+        }
+        List<FileStore> stores = Arrays.asList(sourceStore, targetStore);
+        if (NO_CLONES.contains(stores)) {
+            return false;
+        }
+
+        String[] command = new String[CLONE_COMMAND.length + 2];
+        System.arraycopy(CLONE_COMMAND, 0, command, 0, CLONE_COMMAND.length);
+        command[command.length - 2] = from.toAbsolutePath().toString();
+        command[command.length - 1] = to.toAbsolutePath().toString();
+
+        boolean cloned = false;
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(new File("/dev/null")).start();
+            if (process.waitFor(60, TimeUnit.SECONDS)) {
+                cloned = process.exitValue() == 0;
+            } else {
+                process.destroyForcibly();
+            }
+        } catch (IOException ioe) {
+            // No cp to run.
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted cloning " + from, ie);
+        }
+
+        if (!cloned) {
+            NO_CLONES.add(stores);
+            Files.deleteIfExists(to);
+        }
+        return cloned;
+    }
+
+    private static void copy(final Path from, final Path to) throws IOException {
+        try (FileChannel in = FileChannel.open(from, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(to, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+            long size = in.size();
+            for (long position = 0; position < size; ) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+        Files.setLastModifiedTime(to, Files.getLastModifiedTime(from));
+    }
+}
@@ -0,0 +1,112 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Resolves the artifacts of a catalog with a bounded number of threads. Each artifact is copied into place by the thread
+ * which resolved it, then handed back to the calling thread to be attached, while the rest are still being resolved.
+ * <p/>
+ * Maven's basic repository connector downloads the artifacts of a single request one after another; resolving them
+ * separately lets several download at once.
+ */
+final class ArtifactPipeline {
+
+    /**
+     * Resolves a single artifact, ie: from a remote repository.
+     */
+    interface Resolver {
+        ArtifactResult resolve(ArtifactRequest request) throws ArtifactResolutionException;
+    }
+
+    /**
+     * Copies a resolved artifact into place, returning the result pointing at the copy.
+     */
+    interface Copier {
+        ArtifactResult copy(ArtifactResult result) throws IOException;
+    }
+
+    private final int concurrency;
+    private final Resolver resolver;
+    private final Copier copier;
+
+    /**
+     * @param concurrency The most artifacts to resolve at once. Anything less than 2 resolves them in the calling thread.
+     * @param resolver    Resolves each artifact
+     * @param copier      Copies each resolved artifact
+     */
+    ArtifactPipeline(final int concurrency, final Resolver resolver, final Copier copier) {
+        this.concurrency = concurrency;
+        this.resolver = resolver;
+        this.copier = copier;
+    }
+
+    /**
+     * Resolves and copies the requested artifacts, attaching each (on the calling thread) as soon as it's copied, in
+     * the order they complete.
+     *
+     * @param requests The artifacts to resolve
+     * @param attacher Attaches each copied artifact
+     * @return The copied artifacts, in the order they were attached
+     * @throws ArtifactResolutionException if any artifact can't be resolved. Any still being resolved are abandoned.
+     * @throws IOException                 if any artifact can't be copied.
+     * @throws InterruptedException        if interrupted while waiting for an artifact.
+     */
+    List<ArtifactResult> run(final List<ArtifactRequest> requests, final Consumer<ArtifactResult> attacher)
+            throws ArtifactResolutionException, IOException, InterruptedException {
+        List<ArtifactResult> attached = new ArrayList<>(requests.size());
+        if (concurrency < 2 || requests.size() < 2) {
+            for (ArtifactRequest request : requests) {
+                ArtifactResult result = copier.copy(resolver.resolve(request));
+                attacher.accept(result);
+                attached.add(result);
+            }
+            return attached;
+        }
+
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, requests.size()), runnable -> {
+            Thread thread = new Thread(runnable, "gitflow-helper-artifact-resolver");
+            thread.setDaemon(true);
+            thread.setContextClassLoader(contextClassLoader);
+            return thread;
+        });
+        try {
+            CompletionService<ArtifactResult> completed = new ExecutorCompletionService<>(executor);
+            for (ArtifactRequest request : requests) {
+                completed.submit(() -> copier.copy(resolver.resolve(request)));
+            }
+            for (int i = 0; i < requests.size(); i++) {
+                ArtifactResult result = completed.take().get();
+                attacher.accept(result);
+                attached.add(result);
+            }
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof ArtifactResolutionException) {
+                throw (ArtifactResolutionException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+        return attached;
+    }
+}
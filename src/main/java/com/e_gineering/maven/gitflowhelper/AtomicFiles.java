@@ -0,0 +1,42 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes files by moving a complete temporary file into place, so that in a parallel build no reader (or concurrent
+ * writer) ever sees a partially written file.
+ */
+final class AtomicFiles {
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * Replaces the content of the given file.
+     *
+     * @param file  The file to write
+     * @param bytes The content
+     * @throws IOException if the file can't be written
+     */
+    static void write(final File file, final byte[] bytes) throws IOException {
+        Path target = file.getAbsoluteFile().toPath();
+        Files.createDirectories(target.getParent());
+
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, bytes);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException amnse) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
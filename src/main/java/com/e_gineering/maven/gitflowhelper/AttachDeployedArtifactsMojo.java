@@ -37,8 +37,7 @@ public class AttachDeployedArtifactsMojo extends AbstractGitflowBasedRepositoryM
                 break;
             }
             case OTHER: {
-                String otherBranchesToDeploy = resolveExpression(otherDeployBranchPattern);
-                if (!"".equals(otherBranchesToDeploy) && gitBranchInfo.getName().matches(otherBranchesToDeploy)) {
+                if (isOtherDeployBranch(gitBranchInfo)) {
                     getLog().info("Attaching branch artifacts from snapshot repository...");
                     attachExistingArtifacts(snapshotDeploymentRepository, true);
                     break;
@@ -0,0 +1,133 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import com.e_gineering.maven.gitflowhelper.git.GitDirectory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Properties;
+
+/**
+ * An on-disk cache of the branch names resolved from git, shared by successive Maven invocations in a workspace.
+ * <p/>
+ * Each git working copy has one entry, which is only valid while its key is unchanged. The key is made up of the
+ * content of HEAD, the commit it resolves to, the modification time of <code>packed-refs</code> and a hash of the
+ * branch patterns. For a detached HEAD, where the name depends upon every ref pointing at the commit, the newest
+ * modification time of the directories holding loose branch refs is included as well: git creates and renames a
+ * lock file in a ref's directory whenever it updates that ref.
+ */
+class BranchCache {
+
+    private static final String KEY_SUFFIX = ".key";
+    private static final String BRANCH_SUFFIX = ".branch";
+
+    private final File file;
+    private Properties entries;
+    private boolean dirty;
+
+    /**
+     * @param file The cache file. It's created when the first entry is stored.
+     */
+    BranchCache(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Computes the validity key for the current state of the given repository.
+     *
+     * @param gitDirectory The repository
+     * @param patternsHash A hash of the branch patterns in use
+     * @return The key to store or look up a branch name with.
+     */
+    static String validityKey(final GitDirectory gitDirectory, final String patternsHash) throws IOException {
+        return validityKey(gitDirectory, gitDirectory.readHead(), patternsHash);
+    }
+
+    /**
+     * Computes the validity key for the state of the given repository, with HEAD as already read.
+     *
+     * @param gitDirectory The repository
+     * @param head         The raw content of HEAD
+     * @param patternsHash A hash of the branch patterns in use
+     * @return The key to store or look up a branch name with.
+     */
+    static String validityKey(final GitDirectory gitDirectory, final String head, final String patternsHash) throws IOException {
+        StringBuilder key = new StringBuilder(head)
+                .append('|').append(gitDirectory.resolveHead())
+                .append('|').append(new File(gitDirectory.getCommonDir(), "packed-refs").lastModified())
+                .append('|').append(patternsHash);
+        if (!head.startsWith("ref:")) {
+            key.append('|').append(Math.max(newestDirectory(new File(gitDirectory.getCommonDir(), "refs/heads")),
+                    newestDirectory(new File(gitDirectory.getCommonDir(), "refs/remotes"))));
+        }
+        return key.toString();
+    }
+
+    private static long newestDirectory(final File directory) {
+        long newest = directory.lastModified();
+        File[] children = directory.listFiles(File::isDirectory);
+        if (children != null) {
+            for (File child : children) {
+                newest = Math.max(newest, newestDirectory(child));
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * @param workTree    The top level directory of the working copy
+     * @param validityKey The key computed for the current state of the repository
+     * @return The cached branch name, or null if there is none for that key.
+     */
+    synchronized String get(final File workTree, final String validityKey) {
+        Properties cached = entries();
+        String root = workTree.getAbsolutePath();
+        return validityKey.equals(cached.getProperty(root + KEY_SUFFIX)) ? cached.getProperty(root + BRANCH_SUFFIX) : null;
+    }
+
+    /**
+     * Stores a branch name, and writes the cache file.
+     *
+     * @param workTree    The top level directory of the working copy
+     * @param validityKey The key computed for the current state of the repository
+     * @param branchName  The branch name resolved for that state
+     */
+    synchronized void put(final File workTree, final String validityKey, final String branchName) throws IOException {
+        Properties cached = entries();
+        String root = workTree.getAbsolutePath();
+        cached.setProperty(root + KEY_SUFFIX, validityKey);
+        cached.setProperty(root + BRANCH_SUFFIX, branchName);
+        dirty = true;
+        flush();
+    }
+
+    /**
+     * Writes the cache file if any entries were stored, recreating it if it's been deleted since (ie: by <code>mvn clean</code>).
+     */
+    synchronized void flush() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        // Builds sharing the cache directory each write a temporary file of their own.
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        entries.store(content, "gitflow-helper-maven-plugin branch cache");
+        AtomicFiles.write(file, content.toByteArray());
+    }
+
+    private Properties entries() {
+        if (entries == null) {
+            entries = new Properties();
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                entries.load(in);
+            } catch (NoSuchFileException ignored) {
+            } catch (IOException | IllegalArgumentException e) {
+                // A corrupt cache is an empty cache.
+                entries.clear();
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,66 @@
+package com.e_gineering.maven.gitflowhelper;
+
+/**
+ * A user defined kind of branch, ie: <code>team-x/release/(.*)</code>, which is built as one of the gitflow branch types.
+ * <p/>
+ * Configured as:
+ * <pre>
+ * &lt;branchCategories&gt;
+ *     &lt;branchCategory&gt;
+ *         &lt;name&gt;team-x-release&lt;/name&gt;
+ *         &lt;pattern&gt;(origin/)?team-x/release/(.*)&lt;/pattern&gt;
+ *         &lt;type&gt;RELEASE&lt;/type&gt;
+ *     &lt;/branchCategory&gt;
+ * &lt;/branchCategories&gt;
+ * </pre>
+ */
+public class BranchCategory {
+
+    private String name;
+
+    private String pattern;
+
+    private GitBranchType type;
+
+    public BranchCategory() {
+    }
+
+    BranchCategory(final String name, final String pattern, final GitBranchType type) {
+        this.name = name;
+        this.pattern = pattern;
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public GitBranchType getType() {
+        return type;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the category is incomplete, or maps to UNDEFINED.
+     */
+    void validate() {
+        if (name == null || name.trim().isEmpty() || pattern == null || pattern.isEmpty() || type == null) {
+            throw new IllegalArgumentException("Branch categories require a name, pattern and type. Found: " + this);
+        }
+        if (type == GitBranchType.UNDEFINED) {
+            throw new IllegalArgumentException("Branch category '" + name + "' can't be of type UNDEFINED.");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BranchCategory: [" +
+                "name='" + name + '\'' +
+                ", pattern='" + pattern + '\'' +
+                ", type='" + type + '\'' +
+                ']';
+    }
+}
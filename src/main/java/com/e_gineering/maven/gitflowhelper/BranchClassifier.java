@@ -0,0 +1,252 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Classifies branch names against the configured branch patterns and branch categories.
+ * <p/>
+ * The patterns are compiled once per configuration, and classifiers are shared for the life of the JVM. The groups
+ * captured by the matching pattern are kept in the resulting {@link GitBranchInfo}, so that nothing downstream needs
+ * to match the branch name again.
+ * <p/>
+ * With many branch categories, most patterns can't possibly match a given name. The literal text each pattern must
+ * start with is indexed in a trie, so only the patterns whose prefix the name starts with (or which have none) are
+ * matched.
+ */
+class BranchClassifier {
+
+    private static final ConcurrentMap<List<String>, BranchClassifier> CLASSIFIERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+
+    private static final GitBranchType[] TYPES = {
+            GitBranchType.MASTER, GitBranchType.SUPPORT, GitBranchType.RELEASE, GitBranchType.HOTFIX, GitBranchType.DEVELOPMENT
+    };
+
+    private static final String METACHARACTERS = ".[]{}()*+?^$|";
+
+    private final Pattern[] patterns;
+    private final GitBranchType[] types;
+    private final String[] categories;
+    private final PrefixNode index = new PrefixNode();
+
+    private BranchClassifier(final List<String> patternsAndTypes) {
+        int rules = patternsAndTypes.size() / 3;
+        this.patterns = new Pattern[rules];
+        this.types = new GitBranchType[rules];
+        this.categories = new String[rules];
+        for (int i = 0; i < rules; i++) {
+            patterns[i] = compile(patternsAndTypes.get(i * 3));
+            types[i] = GitBranchType.valueOf(patternsAndTypes.get(i * 3 + 1));
+            categories[i] = patternsAndTypes.get(i * 3 + 2);
+            for (String prefix : literalPrefixes(patterns[i].pattern())) {
+                index.insert(prefix, i);
+            }
+        }
+    }
+
+    /**
+     * Returns the (possibly cached) classifier for the given patterns.
+     */
+    static BranchClassifier forPatterns(final String masterBranchPattern, final String supportBranchPattern,
+                                        final String releaseBranchPattern, final String hotfixBranchPattern,
+                                        final String developmentBranchPattern)
+    {
+        return forPatterns(masterBranchPattern, supportBranchPattern, releaseBranchPattern, hotfixBranchPattern,
+                developmentBranchPattern, Collections.emptyList());
+    }
+
+    /**
+     * Returns the (possibly cached) classifier for the given patterns and branch categories. The gitflow patterns take
+     * precedence over the categories, which are checked in the order given.
+     *
+     * @throws IllegalArgumentException if a category is invalid.
+     */
+    static BranchClassifier forPatterns(final String masterBranchPattern, final String supportBranchPattern,
+                                        final String releaseBranchPattern, final String hotfixBranchPattern,
+                                        final String developmentBranchPattern, final List<BranchCategory> branchCategories)
+    {
+        String[] builtIn = {masterBranchPattern, supportBranchPattern, releaseBranchPattern, hotfixBranchPattern, developmentBranchPattern};
+        List<String> key = new ArrayList<>((builtIn.length + branchCategories.size()) * 3);
+        for (int i = 0; i < builtIn.length; i++) {
+            key.addAll(Arrays.asList(builtIn[i], TYPES[i].name(), null));
+        }
+        for (BranchCategory category : branchCategories) {
+            category.validate();
+            key.addAll(Arrays.asList(category.getPattern(), category.getType().name(), category.getName().trim()));
+        }
+        return CLASSIFIERS.computeIfAbsent(key, BranchClassifier::new);
+    }
+
+    /**
+     * Returns the (possibly cached) compiled form of the given regular expression.
+     *
+     * @param regex A regular expression, ie: the otherDeployBranchPattern
+     * @return The compiled Pattern
+     */
+    static Pattern compile(final String regex) {
+        return PATTERNS.computeIfAbsent(regex, Pattern::compile);
+    }
+
+    /**
+     * Determines the type of the branch, checking the patterns in order of precedence (master, support, release, hotfix,
+     * development, then the branch categories).
+     *
+     * @param branchName The branch name. null and "" are UNDEFINED.
+     * @return The branch info, with the groups captured by the matching pattern.
+     */
+    GitBranchInfo classify(final String branchName) {
+        if (branchName == null || branchName.equals("")) {
+            return new GitBranchInfo("", GitBranchType.UNDEFINED, null); // Force UNDEFINED to be "" for the name.
+        }
+
+        BitSet candidates = index.candidates(branchName);
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            Matcher m = patterns[i].matcher(branchName);
+            if (m.matches()) {
+                String[] groups = new String[m.groupCount() + 1];
+                for (int group = 0; group < groups.length; group++) {
+                    groups[group] = m.group(group);
+                }
+                return new GitBranchInfo(branchName, types[i], patterns[i].pattern(), groups, categories[i]);
+            }
+        }
+        return new GitBranchInfo(branchName, GitBranchType.OTHER, null);
+    }
+
+    /**
+     * @return Something which changes whenever the classification of any branch name could.
+     */
+    String getKey() {
+        List<String> key = new ArrayList<>();
+        for (int i = 0; i < patterns.length; i++) {
+            key.addAll(Arrays.asList(patterns[i].pattern(), types[i].name(), categories[i]));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Determines the literal text any name matching the regex must start with. A leading optional group of literal
+     * text, ie: <code>(origin/)?</code>, yields a prefix with and without the group.
+     *
+     * @param regex A regular expression
+     * @return The prefixes, "" if the regex could start with anything.
+     */
+    static List<String> literalPrefixes(final String regex) {
+        if (hasTopLevelAlternation(regex)) {
+            return Collections.singletonList("");
+        }
+
+        if (regex.startsWith("(")) {
+            int close = regex.indexOf(')');
+            if (close > 0 && regex.startsWith(")?", close)) {
+                StringBuilder group = new StringBuilder();
+                if (readLiteral(regex.substring(1, close), group) == close - 1) {
+                    StringBuilder rest = new StringBuilder();
+                    readLiteral(regex.substring(close + 2), rest);
+                    return Arrays.asList(group.toString() + rest, rest.toString());
+                }
+            }
+        }
+
+        StringBuilder prefix = new StringBuilder();
+        readLiteral(regex, prefix);
+        return Collections.singletonList(prefix.toString());
+    }
+
+    /**
+     * Appends the literal characters every match of the regex must start with.
+     *
+     * @return The index in the regex the literal text ends at, which is its length if it's entirely literal.
+     */
+    private static int readLiteral(final String regex, final StringBuilder literal) {
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            int next = i + 1;
+            if (c == '\\') {
+                // \d, \Q, \b & co. aren't literals.
+                if (next >= regex.length() || Character.isLetterOrDigit(regex.charAt(next))) {
+                    break;
+                }
+                c = regex.charAt(next++);
+            } else if (METACHARACTERS.indexOf(c) >= 0) {
+                break;
+            }
+
+            // An optional character isn't required.
+            if (next < regex.length() && "?*{".indexOf(regex.charAt(next)) >= 0) {
+                break;
+            }
+            literal.append(c);
+            i = next;
+            // Nor is anything repeated after it.
+            if (next < regex.length() && regex.charAt(next) == '+') {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static boolean hasTopLevelAlternation(final String regex) {
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inClass) {
+                inClass = c != ']';
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A trie of literal prefixes, each node holding the rules whose prefix ends there.
+     */
+    private static class PrefixNode {
+        private final Map<Character, PrefixNode> children = new HashMap<>();
+        private final BitSet rules = new BitSet();
+
+        private void insert(final String prefix, final int rule) {
+            PrefixNode node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new PrefixNode());
+            }
+            node.rules.set(rule);
+        }
+
+        /**
+         * @return The rules whose prefix the name starts with, in order of precedence.
+         */
+        private BitSet candidates(final String name) {
+            BitSet candidates = (BitSet) rules.clone();
+            PrefixNode node = this;
+            for (int i = 0; i < name.length() && node != null; i++) {
+                node = node.children.get(name.charAt(i));
+                if (node != null) {
+                    candidates.or(node.rules);
+                }
+            }
+            return candidates;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * The resolved branch, as properties other plugins (and scripts) can use rather than asking git themselves.
+ * <p/>
+ * Properties which don't apply to the branch, such as the version of a develop branch, are left unset.
+ */
+class BranchProperties {
+
+    static final String NAME = "gitflow.branch.name";
+    static final String TYPE = "gitflow.branch.type";
+    static final String PATTERN = "gitflow.branch.pattern";
+    static final String CATEGORY = "gitflow.branch.category";
+    static final String VERSION = "gitflow.branch.version";
+    static final String HEAD_SHA = "gitflow.head.sha";
+
+    private static final List<String> KEYS = Arrays.asList(NAME, TYPE, PATTERN, CATEGORY, VERSION, HEAD_SHA);
+
+    private final Properties properties = new Properties();
+
+    /**
+     * @param branchInfo The resolved branch
+     * @param headSha    The commit HEAD points to, or null if it isn't known.
+     */
+    BranchProperties(final GitBranchInfo branchInfo, final String headSha) {
+        properties.setProperty(NAME, branchInfo.getName());
+        properties.setProperty(TYPE, branchInfo.getType().name());
+        if (branchInfo.getPattern() != null) {
+            properties.setProperty(PATTERN, branchInfo.getPattern());
+        }
+        if (branchInfo.getCategory() != null) {
+            properties.setProperty(CATEGORY, branchInfo.getCategory());
+        }
+        // Only these name their version. The last group of any other pattern is, at most, its optional remote prefix.
+        if (GitBranchType.UNIQUELY_VERSIONED_TYPES.contains(branchInfo.getType()) && branchInfo.getVersion() != null) {
+            properties.setProperty(VERSION, branchInfo.getVersion());
+        }
+        if (headSha != null) {
+            properties.setProperty(HEAD_SHA, headSha);
+        }
+    }
+
+    Properties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Sets the properties on the project, replacing any left by a previous export. They're also set as user properties
+     * of the session when the project is within the same git working copy as the top level project, so the session
+     * always describes the branch the build was started on.
+     *
+     * @param session The current session
+     * @param project The project the branch was resolved for
+     */
+    void export(final MavenSession session, final MavenProject project) {
+        replace(project.getProperties());
+
+        File gitRoot = ScmUtils.findGitRoot(project.getBasedir());
+        if (gitRoot == null || gitRoot.equals(ScmUtils.findGitRoot(session.getTopLevelProject().getBasedir()))) {
+            replace(session.getUserProperties());
+        }
+    }
+
+    /**
+     * Replaces the properties while holding the lock of the target, so that modules built in parallel never see a
+     * mix of old and new values.
+     */
+    private void replace(final Properties target) {
+        synchronized (target) {
+            for (String key : KEYS) {
+                target.remove(key);
+            }
+            target.putAll(properties);
+        }
+    }
+
+    /**
+     * Writes the properties to the given file, sorted and without a timestamp. An up to date file isn't rewritten, so
+     * that anything depending upon it isn't considered stale.
+     *
+     * @param file The file to write
+     * @throws IOException if the file can't be written
+     */
+    void write(final File file) throws IOException {
+        StringBuilder content = new StringBuilder("# gitflow-helper-maven-plugin resolved branch\n");
+        for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+            // Let Properties do the escaping, then drop the timestamp comment it writes first.
+            Properties single = new Properties();
+            single.setProperty(key, properties.getProperty(key));
+            StringWriter writer = new StringWriter();
+            single.store(writer, null);
+            String line = writer.toString();
+            content.append(line.substring(line.indexOf('\n') + 1).replace(System.lineSeparator(), "\n"));
+        }
+
+        byte[] bytes = content.toString().getBytes(ISO_8859_1);
+        if (file.isFile() && Arrays.equals(bytes, Files.readAllBytes(file.toPath()))) {
+            return;
+        }
+        AtomicFiles.write(file, bytes);
+    }
+}
@@ -0,0 +1,114 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import com.e_gineering.maven.gitflowhelper.properties.PropertyLookup;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Sources for the name of the branch being built, consulted in the configured order until one of them answers.
+ * <p/>
+ * The CI server providers only read environment variables, and answer only when the variables unambiguously name a
+ * branch (not a tag, not a bare pull request number). {@link #SCM} asks git, and is resolved by {@link ScmUtils}.
+ */
+enum BranchProvider {
+
+    /**
+     * CHANGE_BRANCH for change requests from multibranch pipelines, otherwise GIT_BRANCH from the Jenkins git plugin
+     * or BRANCH_NAME, unless the pipeline is building a tag.
+     */
+    JENKINS {
+        @Override
+        String resolveBranchName(final PropertyLookup environment) {
+            // A change request's GIT_BRANCH and BRANCH_NAME are both "PR-12", not the branch the change comes from.
+            if (StringUtils.isNotBlank(environment.get("CHANGE_ID"))) {
+                return nonBlank(environment.get("CHANGE_BRANCH"));
+            }
+            if (StringUtils.isNotBlank(environment.get("TAG_NAME"))) {
+                return null;
+            }
+            String gitBranch = environment.get("GIT_BRANCH");
+            if (StringUtils.isNotBlank(gitBranch)) {
+                return gitBranch.trim();
+            }
+            return nonBlank(environment.get("BRANCH_NAME"));
+        }
+    },
+
+    /**
+     * GITHUB_HEAD_REF for pull requests, otherwise GITHUB_REF if it refers to a branch.
+     */
+    GITHUB {
+        @Override
+        String resolveBranchName(final PropertyLookup environment) {
+            String headRef = environment.get("GITHUB_HEAD_REF");
+            if (StringUtils.isNotBlank(headRef)) {
+                return headRef.trim();
+            }
+            String ref = nonBlank(environment.get("GITHUB_REF"));
+            if (ref != null && ref.startsWith("refs/heads/")) {
+                return ref.substring("refs/heads/".length());
+            }
+            return null;
+        }
+    },
+
+    /**
+     * CI_COMMIT_REF_NAME, unless the pipeline is building a tag.
+     */
+    GITLAB {
+        @Override
+        String resolveBranchName(final PropertyLookup environment) {
+            if (StringUtils.isNotBlank(environment.get("CI_COMMIT_TAG"))) {
+                return null;
+            }
+            return nonBlank(environment.get("CI_COMMIT_REF_NAME"));
+        }
+    },
+
+    /**
+     * The local git repository, as described by the project's &lt;scm&gt; block.
+     */
+    SCM {
+        @Override
+        String resolveBranchName(final PropertyLookup environment) {
+            return null;
+        }
+    };
+
+    /**
+     * The default order: the CI servers' environment first, as reading it costs nothing, then git.
+     */
+    static final String DEFAULT_ORDER = "jenkins,github,gitlab,scm";
+
+    /**
+     * @param environment The system environment variables
+     * @return The branch name, or null if this provider can't tell.
+     */
+    abstract String resolveBranchName(final PropertyLookup environment);
+
+    /**
+     * Parses a comma separated list of provider names.
+     *
+     * @param providers ie: "jenkins,github,gitlab,scm"
+     * @return The providers, in order.
+     * @throws IllegalArgumentException for unknown provider names.
+     */
+    static List<BranchProvider> parse(final String providers) {
+        List<BranchProvider> parsed = new ArrayList<>();
+        for (String name : StringUtils.split(providers == null ? DEFAULT_ORDER : providers, ", ")) {
+            try {
+                parsed.add(valueOf(name.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException iae) {
+                throw new IllegalArgumentException("Unknown branch provider '" + name + "'. Expected a comma separated list of: jenkins, github, gitlab, scm.");
+            }
+        }
+        return parsed;
+    }
+
+    private static String nonBlank(final String value) {
+        return StringUtils.isBlank(value) ? null : value.trim();
+    }
+}
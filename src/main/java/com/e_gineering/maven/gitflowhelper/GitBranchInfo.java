@@ -11,6 +11,10 @@ public class GitBranchInfo {
 
     private final String pattern;
 
+    private final String[] groups;
+
+    private final String category;
+
     /**
      * Constructs a GitBranchInfo object for the given name and type.
      *
@@ -20,6 +24,33 @@ public class GitBranchInfo {
      * @throws IllegalArgumentException if name or type are null
      */
     GitBranchInfo(final String name, final GitBranchType type, final String pattern) {
+        this(name, type, pattern, new String[0]);
+    }
+
+    /**
+     * Constructs a GitBranchInfo object for the given name and type, matched by the given pattern.
+     *
+     * @param name must not be null. (empty string OK)
+     * @param type must not be null. (use OTHER)
+     * @param pattern may be null
+     * @param groups The groups captured by the pattern, group 0 being the whole name.
+     * @throws IllegalArgumentException if name or type are null
+     */
+    GitBranchInfo(final String name, final GitBranchType type, final String pattern, final String[] groups) {
+        this(name, type, pattern, groups, null);
+    }
+
+    /**
+     * Constructs a GitBranchInfo object for the given name and type, matched by the pattern of a branch category.
+     *
+     * @param name must not be null. (empty string OK)
+     * @param type must not be null. (use OTHER)
+     * @param pattern may be null
+     * @param groups The groups captured by the pattern, group 0 being the whole name.
+     * @param category The name of the branch category, or null if matched by one of the gitflow patterns.
+     * @throws IllegalArgumentException if name or type are null
+     */
+    GitBranchInfo(final String name, final GitBranchType type, final String pattern, final String[] groups, final String category) {
         if(name == null) {
             throw new IllegalArgumentException("name must not be null");
         }
@@ -29,6 +60,8 @@ public class GitBranchInfo {
         this.name = name;
         this.type = type;
         this.pattern = pattern;
+        this.groups = groups;
+        this.category = category;
     }
 
     public String getName() {
@@ -51,6 +84,35 @@ public class GitBranchInfo {
         return pattern;
     }
 
+    /**
+     * @return The name of the configured branch category the branch belongs to, or null if it isn't in one.
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * @return The number of capturing groups in the pattern which matched the branch name.
+     */
+    public int getGroupCount() {
+        return Math.max(groups.length - 1, 0);
+    }
+
+    /**
+     * @param group The group index, 0 being the whole name.
+     * @return The value captured by the group, or null if the group didn't participate in the match.
+     */
+    public String getGroup(final int group) {
+        return groups[group];
+    }
+
+    /**
+     * @return The value of the last subgroup of the pattern, which is the version for versioned branches. May be null.
+     */
+    public String getVersion() {
+        return getGroupCount() > 0 ? groups[getGroupCount()] : null;
+    }
+
     @Override
     public String toString() {
         return "GitBranchInfo: [" +
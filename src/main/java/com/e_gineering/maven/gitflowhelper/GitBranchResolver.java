@@ -0,0 +1,155 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import com.e_gineering.maven.gitflowhelper.git.GitDirectory;
+import com.e_gineering.maven.gitflowhelper.git.GitProcesses;
+import com.e_gineering.maven.gitflowhelper.git.HeadState;
+import org.apache.maven.execution.MavenSession;
+import org.codehaus.plexus.component.annotations.Component;
+import org.eclipse.aether.SessionData;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Session scoped branch resolution.
+ * <p/>
+ * Resolving the current branch may require forking several git processes. The answer is the same for every project
+ * within a git working copy, so the {@link GitBranchInfo} is computed once per git root and branch configuration and
+ * kept in the {@link MavenSession}, where the build extension and every mojo execution in the reactor can reuse it.
+ * Any git processes started along the way are shared as well, and stopped by {@link #close(MavenSession)} when the
+ * build extension is in use, or otherwise when the JVM exits.
+ */
+@Component(role = GitBranchResolver.class)
+public class GitBranchResolver {
+
+    /**
+     * Keyed by our own class, so that two plugin realms sharing a session never see each other's instances.
+     */
+    private static final Object SESSION_KEY = GitBranchResolver.class;
+
+    private static final String BRANCH_CACHE_FILE = "gitflow-helper-branch.cache";
+
+    /**
+     * Returns the branch info for the project and configuration held by the given ScmUtils, resolving it only if no
+     * previous resolution in this session has been made for the same git root and configuration.
+     *
+     * @param session             The current maven session
+     * @param scmUtils            Configured for the project being built
+     * @param gitBranchExpression The (possibly null) configured gitBranchExpression
+     * @param branchCacheFile     The on-disk cache of branch names to use, or null to not use one.
+     * @return The resolved branch info
+     */
+    GitBranchInfo resolve(final MavenSession session, final ScmUtils scmUtils, final String gitBranchExpression, final File branchCacheFile) {
+        SessionState state = state(session);
+        BranchCache branchCache = branchCacheFile == null ? null : state.branchCaches.computeIfAbsent(branchCacheFile.getAbsoluteFile(), BranchCache::new);
+        return state.resolved.computeIfAbsent(scmUtils.getResolutionKey(gitBranchExpression), key -> scmUtils.resolveBranchInfo(gitBranchExpression, state.gitProcesses, branchCache, state.prefetched));
+    }
+
+    /**
+     * Returns the commit HEAD points to in the given git working copy, reading it only once per session.
+     *
+     * @param session       The current maven session
+     * @param gitRoot       The root of the working copy
+     * @param timeoutMillis The longest to wait for git, if the repository can't be read in-process.
+     * @return The commit id, or null if it can't be determined.
+     */
+    String headSha(final MavenSession session, final File gitRoot, final long timeoutMillis) {
+        SessionState state = state(session);
+        String sha1 = state.heads.computeIfAbsent(gitRoot, root -> {
+            try {
+                GitDirectory gitDirectory = GitDirectory.locate(root);
+                if (gitDirectory != null) {
+                    return gitDirectory.resolveHead();
+                }
+            } catch (IOException ioe) {
+                // Fall back to asking git.
+            }
+            try {
+                return state.gitProcesses.forDirectory(root, timeoutMillis).revParse("HEAD");
+            } catch (IOException ioe) {
+                return "";
+            }
+        });
+        return sha1.isEmpty() ? null : sha1;
+    }
+
+    /**
+     * Starts reading the state of HEAD of the git working copy containing the given directory on a background thread,
+     * so that it overlaps with whatever the build does until the branch is first resolved.
+     *
+     * @param session   The current maven session
+     * @param directory A directory within the working copy, ie: the directory maven was started in.
+     */
+    void prefetch(final MavenSession session, final File directory) {
+        File gitRoot = ScmUtils.findGitRoot(directory);
+        if (gitRoot == null) {
+            return;
+        }
+
+        FutureTask<HeadState> task = new FutureTask<>(() -> {
+            GitDirectory gitDirectory = GitDirectory.locate(gitRoot);
+            return gitDirectory == null ? null : HeadState.read(gitDirectory);
+        });
+        if (state(session).prefetched.putIfAbsent(gitRoot, task) == null) {
+            Thread prefetcher = new Thread(task, "gitflow-helper-head-prefetch");
+            prefetcher.setDaemon(true);
+            prefetcher.start();
+        }
+    }
+
+    /**
+     * Stops any git processes started for the session, and rewrites any branch cache files which were updated, in
+     * case they've been removed by a <code>clean</code> since.
+     *
+     * @param session The session which is ending
+     * @throws IOException if a branch cache file can't be written
+     */
+    void close(final MavenSession session) throws IOException {
+        SessionState state = state(session);
+        try {
+            for (BranchCache branchCache : state.branchCaches.values()) {
+                branchCache.flush();
+            }
+        } finally {
+            state.gitProcesses.close();
+        }
+    }
+
+    /**
+     * @param branchCacheDirectory The configured directory, or null to use the build directory of the top level project.
+     * @param session              The current maven session
+     * @return The branch cache file to use.
+     */
+    static File branchCacheFile(final File branchCacheDirectory, final MavenSession session) {
+        File directory = branchCacheDirectory;
+        if (directory == null) {
+            directory = new File(session.getTopLevelProject().getBuild().getDirectory());
+        }
+        return new File(directory, BRANCH_CACHE_FILE);
+    }
+
+    private static SessionState state(final MavenSession session) {
+        SessionData data = session.getRepositorySession().getData();
+
+        Object state = data.get(SESSION_KEY);
+        while (state == null) {
+            data.set(SESSION_KEY, null, new SessionState());
+            state = data.get(SESSION_KEY);
+        }
+
+        return (SessionState) state;
+    }
+
+    private static class SessionState {
+        private final ConcurrentMap<String, GitBranchInfo> resolved = new ConcurrentHashMap<>();
+        private final GitProcesses gitProcesses = new GitProcesses();
+        private final ConcurrentMap<File, BranchCache> branchCaches = new ConcurrentHashMap<>();
+        private final ConcurrentMap<File, Future<HeadState>> prefetched = new ConcurrentHashMap<>();
+        /* The commit HEAD points to, or "" if unknown, by git root. */
+        private final ConcurrentMap<File, String> heads = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,286 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Promotes a release from a file based stage repository to a file based release repository on the same file system.
+ * <p/>
+ * Each catalogued file (along with the catalog and the pom) is linked, or failing that copied, straight from the stage
+ * repository's layout into the release repository's, then moved into place. The checksums and the
+ * <code>maven-metadata.xml</code> a deploy would have written are written as well, so that nothing needs to be
+ * downloaded, copied into the build, or uploaded again.
+ */
+final class LocalPromotion {
+
+    /* Checksum file extensions, and their algorithms. */
+    private static final String[][] CHECKSUMS = {{"md5", "MD5"}, {"sha1", "SHA-1"}};
+
+    private static final String METADATA = "maven-metadata.xml";
+
+    private final File stage;
+    private final File release;
+
+    LocalPromotion(final File stage, final File release) {
+        this.stage = stage;
+        this.release = release;
+    }
+
+    /**
+     * Returns a promotion between the given repositories if both are file based, with the default layout, on the same
+     * file system.
+     *
+     * @param stage   The stage repository
+     * @param release The release repository
+     * @return The promotion, or null if the repositories aren't suitable.
+     * @throws IOException if the file systems of the repositories can't be determined
+     */
+    static LocalPromotion forRepositories(final ArtifactRepository stage, final ArtifactRepository release) throws IOException {
+        File stageDirectory = basedir(stage);
+        File releaseDirectory = basedir(release);
+        if (stageDirectory == null || releaseDirectory == null || !stageDirectory.isDirectory()) {
+            return null;
+        }
+        if (!fileStore(stageDirectory).equals(fileStore(releaseDirectory))) {
+            return null;
+        }
+        return new LocalPromotion(stageDirectory, releaseDirectory);
+    }
+
+    private static File basedir(final ArtifactRepository repository) {
+        if (repository == null || !"file".equals(repository.getProtocol()) || repository.getBasedir() == null
+                || repository.getLayout() == null || !"default".equals(repository.getLayout().getId())) {
+            return null;
+        }
+        return new File(repository.getBasedir()).getAbsoluteFile();
+    }
+
+    /**
+     * @return The store of the given directory, or of its closest existing parent.
+     */
+    private static FileStore fileStore(final File directory) throws IOException {
+        File existing = directory;
+        while (!existing.exists()) {
+            existing = existing.getParentFile();
+            if (existing == null) {
+                throw new FileNotFoundException(directory.getPath());
+            }
+        }
+        return Files.getFileStore(existing.toPath());
+    }
+
+    /**
+     * Promotes the catalogued artifacts of the given project version.
+     *
+     * @param groupId    The project's groupId
+     * @param artifactId The project's artifactId
+     * @param version    The version to promote
+     * @param log        For reporting each file promoted
+     * @return The promoted artifacts (the catalogued artifacts, the catalog, its checksums and the pom), in the release
+     *         repository.
+     * @throws FileNotFoundException if the catalog or a catalogued artifact isn't in the stage repository
+     * @throws IOException           if the files can't be promoted
+     */
+    List<Artifact> promote(final String groupId, final String artifactId, final String version, final Log log) throws IOException {
+        Artifact catalog = new DefaultArtifact(groupId, artifactId, "catalog", "txt", version);
+        File catalogFile = new File(stage, path(catalog));
+        if (!catalogFile.isFile()) {
+            throw new FileNotFoundException("No artifact catalog in stage repository: " + catalogFile);
+        }
+
+        Artifact checksums = new DefaultArtifact(groupId, artifactId, ArtifactCatalog.CHECKSUMS_CLASSIFIER, "txt", version);
+        File checksumsFile = new File(stage, path(checksums));
+        if (!checksumsFile.isFile()) {
+            checksumsFile = null;
+        }
+
+        Map<Artifact, ArtifactCatalog.Entry> artifacts = new LinkedHashMap<>();
+        for (ArtifactCatalog.Entry entry : ArtifactCatalog.read(catalogFile, checksumsFile)) {
+            artifacts.put(new DefaultArtifact(entry.getCoordinates()), entry);
+        }
+        artifacts.put(catalog, new ArtifactCatalog.Entry(catalog.toString()));
+        if (checksumsFile != null) {
+            artifacts.put(checksums, new ArtifactCatalog.Entry(checksums.toString()));
+        }
+        Artifact pom = new DefaultArtifact(groupId, artifactId, "", "pom", version);
+        if (new File(stage, path(pom)).isFile()) {
+            artifacts.put(pom, new ArtifactCatalog.Entry(pom.toString()));
+        }
+
+        List<Artifact> promoted = new ArrayList<>(artifacts.size());
+        Set<String> projects = new LinkedHashSet<>();
+        for (Map.Entry<Artifact, ArtifactCatalog.Entry> catalogued : artifacts.entrySet()) {
+            Artifact artifact = catalogued.getKey();
+            File source = new File(stage, path(artifact));
+            if (!source.isFile()) {
+                throw new FileNotFoundException("Catalogued artifact " + artifact + " is not in stage repository: " + source);
+            }
+            // Nothing is read, so only the size is checked against the catalog.
+            long size = catalogued.getValue().getSize();
+            if (size >= 0 && source.length() != size) {
+                throw new IOException("Size of " + source + " is " + source.length() + ", catalogued as " + size);
+            }
+            File target = new File(release, path(artifact));
+            log.info("Promoting: " + artifact + " (" + ArtifactFiles.publish(source, target) + ")");
+            writeChecksums(source, target);
+
+            promoted.add(artifact.setFile(target));
+            projects.add(artifact.getGroupId() + ":" + artifact.getArtifactId());
+        }
+
+        for (String project : projects) {
+            String[] ga = project.split(":");
+            updateMetadata(ga[0], ga[1], version);
+        }
+        return promoted;
+    }
+
+    /**
+     * @return The path of the artifact within a repository with the default layout.
+     */
+    static String path(final Artifact artifact) {
+        StringBuilder path = new StringBuilder(128);
+        path.append(artifact.getGroupId().replace('.', '/')).append('/')
+                .append(artifact.getArtifactId()).append('/')
+                .append(artifact.getBaseVersion()).append('/')
+                .append(artifact.getArtifactId()).append('-').append(artifact.getVersion());
+        if (!artifact.getClassifier().isEmpty()) {
+            path.append('-').append(artifact.getClassifier());
+        }
+        if (!artifact.getExtension().isEmpty()) {
+            path.append('.').append(artifact.getExtension());
+        }
+        return path.toString();
+    }
+
+    /**
+     * Publishes the source's checksum files alongside the target, computing any the stage repository doesn't have.
+     */
+    private static void writeChecksums(final File source, final File target) throws IOException {
+        String[] computed = null;
+        for (int i = 0; i < CHECKSUMS.length; i++) {
+            File sourceChecksum = new File(source.getPath() + "." + CHECKSUMS[i][0]);
+            File targetChecksum = new File(target.getPath() + "." + CHECKSUMS[i][0]);
+            if (sourceChecksum.isFile()) {
+                ArtifactFiles.publish(sourceChecksum, targetChecksum);
+            } else {
+                if (computed == null) {
+                    computed = checksums(Files.newInputStream(source.toPath()));
+                }
+                AtomicFiles.write(targetChecksum, computed[i].getBytes(UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Writes the checksum files of content just written to the target.
+     */
+    private static void writeChecksumsOf(final File target, final byte[] content) throws IOException {
+        String[] computed = checksums(new ByteArrayInputStream(content));
+        for (int i = 0; i < CHECKSUMS.length; i++) {
+            AtomicFiles.write(new File(target.getPath() + "." + CHECKSUMS[i][0]), computed[i].getBytes(UTF_8));
+        }
+    }
+
+    /**
+     * Computes every checksum in a single pass over the content.
+     */
+    static String[] checksums(final InputStream content) throws IOException {
+        MessageDigest[] digests = new MessageDigest[CHECKSUMS.length];
+        try {
+            for (int i = 0; i < digests.length; i++) {
+                digests[i] = MessageDigest.getInstance(CHECKSUMS[i][1]);
+            }
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException(nsae);
+        }
+
+        InputStream in = content;
+        for (MessageDigest digest : digests) {
+            in = new DigestInputStream(in, digest);
+        }
+        try (InputStream digesting = in) {
+            byte[] buffer = new byte[64 * 1024];
+            while (digesting.read(buffer) >= 0) {
+                // Digested as it's read.
+            }
+        }
+
+        String[] checksums = new String[digests.length];
+        for (int i = 0; i < digests.length; i++) {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digests[i].digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            checksums[i] = hex.toString();
+        }
+        return checksums;
+    }
+
+    /**
+     * Adds the version to the artifact's <code>maven-metadata.xml</code> in the release repository, as a deploy would.
+     */
+    private void updateMetadata(final String groupId, final String artifactId, final String version) throws IOException {
+        File file = new File(release, groupId.replace('.', '/') + "/" + artifactId + "/" + METADATA);
+
+        Metadata metadata = null;
+        if (file.isFile()) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                metadata = new MetadataXpp3Reader().read(in, false);
+            } catch (XmlPullParserException xppe) {
+                throw new IOException("Unable to read repository metadata: " + file, xppe);
+            }
+        }
+        if (metadata == null) {
+            metadata = new Metadata();
+            metadata.setGroupId(groupId);
+            metadata.setArtifactId(artifactId);
+        }
+
+        Versioning versioning = metadata.getVersioning();
+        if (versioning == null) {
+            versioning = new Versioning();
+            metadata.setVersioning(versioning);
+        }
+        if (!versioning.getVersions().contains(version)) {
+            versioning.addVersion(version);
+        }
+        versioning.setLatest(version);
+        versioning.setRelease(version);
+        versioning.updateTimestamp();
+
+        StringWriter writer = new StringWriter();
+        new MetadataXpp3Writer().write(writer, metadata);
+        byte[] content = writer.toString().getBytes(UTF_8);
+
+        AtomicFiles.write(file, content);
+        writeChecksumsOf(file, content);
+    }
+}
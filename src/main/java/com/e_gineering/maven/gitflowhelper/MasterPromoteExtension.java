@@ -1,5 +1,7 @@
 package com.e_gineering.maven.gitflowhelper;
 
+import com.e_gineering.maven.gitflowhelper.properties.EnvironmentSnapshot;
+import com.e_gineering.maven.gitflowhelper.properties.PropertyLookup;
 import org.apache.maven.AbstractMavenLifecycleParticipant;
 import org.apache.maven.MavenExecutionException;
 import org.apache.maven.execution.MavenSession;
@@ -11,14 +13,24 @@ import org.apache.maven.scm.manager.ScmManager;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.codehaus.plexus.logging.Logger;
-import org.codehaus.plexus.util.cli.CommandLineUtils;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Properties;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 /**
  * Maven extension which removes (skips) undesired plugins from the build reactor when running on a master branch.
@@ -37,15 +49,32 @@ public class MasterPromoteExtension extends AbstractMavenLifecycleParticipant {
     @Requirement
     private ScmManager scmManager;
 
+    @Requirement
+    private GitBranchResolver branchResolver;
+
+    /**
+     * Only invoked when registered as a core extension (ie: in <code>.mvn/extensions.xml</code>), as build extensions
+     * aren't loaded until the projects are read.
+     */
     @Override
-    public void afterProjectsRead(MavenSession session) throws MavenExecutionException {
-        Properties systemEnvVars = null;
-        try {
-            systemEnvVars = CommandLineUtils.getSystemEnvVars();
-        } catch (IOException ioe) {
-            throw new MavenExecutionException("Unable to read System Envirionment Variables: ", ioe);
+    public void afterSessionStart(MavenSession session) throws MavenExecutionException {
+        PropertyLookup environment = EnvironmentSnapshot.forSession(session);
+
+        // With the default branch providers, git won't be asked if the CI server already provides the branch.
+        for (BranchProvider provider : BranchProvider.parse(BranchProvider.DEFAULT_ORDER)) {
+            if (provider.resolveBranchName(environment) != null) {
+                return;
+            }
+        }
+
+        if (session.getRequest().getBaseDirectory() != null) {
+            logger.debug("gitflow-helper-maven-plugin: Reading the git HEAD of " + session.getRequest().getBaseDirectory() + " in the background.");
+            branchResolver.prefetch(session, new File(session.getRequest().getBaseDirectory()));
         }
+    }
 
+    @Override
+    public void afterProjectsRead(MavenSession session) throws MavenExecutionException {
         // Look for a gitflow-helper-maven-plugin, so we can determine what the gitBranchExpression and branch patterns are...
         String masterBranchPattern = null;
         String supportBranchPattern = null;
@@ -56,6 +85,12 @@ public class MasterPromoteExtension extends AbstractMavenLifecycleParticipant {
         String featureOrBugfixBranchPattern = null;
 
         String gitBranchExpression = null;
+        String branchProviders = null;
+        String branchCache = null;
+        String gitTimeout = null;
+        String branchCacheDirectory = null;
+        String exportBranchProperties = null;
+        List<BranchCategory> branchCategories = null;
         boolean pluginFound = false;
 
         // Any plugin which is part of the project goals needs to be retained.
@@ -114,6 +149,30 @@ public class MasterPromoteExtension extends AbstractMavenLifecycleParticipant {
                     if (gitBranchExpression == null) {
                         gitBranchExpression = extractPluginConfigValue("gitBranchExpression", plugin);
                     }
+
+                    if (branchProviders == null) {
+                        branchProviders = extractPluginConfigValue("branchProviders", plugin);
+                    }
+
+                    if (branchCache == null) {
+                        branchCache = extractPluginConfigValue("branchCache", plugin);
+                    }
+
+                    if (gitTimeout == null) {
+                        gitTimeout = extractPluginConfigValue("gitTimeout", plugin);
+                    }
+
+                    if (branchCacheDirectory == null) {
+                        branchCacheDirectory = extractPluginConfigValue("branchCacheDirectory", plugin);
+                    }
+
+                    if (exportBranchProperties == null) {
+                        exportBranchProperties = extractPluginConfigValue("exportBranchProperties", plugin);
+                    }
+
+                    if (branchCategories == null) {
+                        branchCategories = extractBranchCategories(plugin);
+                    }
                     // Don't drop things we declare goals for.
                 } else if (pluginsToRetain.contains(plugin)) {
                     logger.debug("gitflow-helper-maven-plugin retaining plugin: " + plugin + " from project: " + project.getName());
@@ -166,25 +225,121 @@ public class MasterPromoteExtension extends AbstractMavenLifecycleParticipant {
             }
             logger.debug("Feature or Bugfix Branch Pattern: " + featureOrBugfixBranchPattern);
 
-            ScmUtils scmUtils = new ScmUtils(systemEnvVars, scmManager, session.getTopLevelProject(), new PlexusLoggerToMavenLog(logger), masterBranchPattern, supportBranchPattern, releaseBranchPattern, hotfixBranchPattern, developmentBranchPattern);
-            GitBranchInfo branchInfo = scmUtils.resolveBranchInfo(gitBranchExpression);
-
-            boolean pruneBuild = false;
-            if (branchInfo != null) {
-                logger.info(branchInfo.toString());
-                if (branchInfo.getType().equals(GitBranchType.MASTER)) {
-                    logger.info("gitflow-helper-maven-plugin: Enabling MasterPromoteExtension. GIT_BRANCH: [" + branchInfo.getName() + "] matches masterBranchPattern: [" + masterBranchPattern + "]");
-                    pruneBuild = true;
-                } else if (branchInfo.getType().equals(GitBranchType.SUPPORT)) {
-                    logger.info("gitflow-helper-maven-plugin: Enabling MasterPromoteExtension. GIT_BRANCH: [" + branchInfo.getName() + "] matches supportBranchPattern: [" + supportBranchPattern + "]");
-                    pruneBuild = true;
+            if (branchProviders == null) {
+                logger.debug("Using default branch providers.");
+                branchProviders = BranchProvider.DEFAULT_ORDER;
+            }
+            logger.debug("Branch Providers: " + branchProviders);
+
+            List<BranchProvider> providers;
+            try {
+                providers = BranchProvider.parse(branchProviders);
+            } catch (IllegalArgumentException iae) {
+                throw new MavenExecutionException(iae.getMessage(), iae);
+            }
+
+            if (gitTimeout == null) {
+                logger.debug("Using default git timeout.");
+                gitTimeout = "30";
+            }
+            logger.debug("Git Timeout: " + gitTimeout + "s");
+
+            int gitTimeoutSeconds;
+            try {
+                gitTimeoutSeconds = Integer.parseInt(gitTimeout.trim());
+            } catch (NumberFormatException nfe) {
+                throw new MavenExecutionException("'gitTimeout' should be a number of seconds. Found '" + gitTimeout + "'.", nfe);
+            }
+
+            File branchCacheFile = null;
+            if (Boolean.parseBoolean(branchCache)) {
+                File directory = null;
+                if (branchCacheDirectory != null) {
+                    // Resolve relative paths the same way maven does for the mojo parameter.
+                    directory = new File(branchCacheDirectory);
+                    if (!directory.isAbsolute()) {
+                        directory = new File(session.getTopLevelProject().getBasedir(), branchCacheDirectory);
+                    }
+                }
+                branchCacheFile = GitBranchResolver.branchCacheFile(directory, session);
+                logger.debug("Branch Cache: " + branchCacheFile);
+            }
+
+            // The reactor may span several git working copies (submodules, sibling clones), each on its own branch.
+            // Projects outside of any working copy build as the top level project does.
+            File topLevelRoot = ScmUtils.findGitRoot(session.getTopLevelProject().getBasedir());
+            Map<File, MavenProject> gitRoots = new LinkedHashMap<>();
+            Map<MavenProject, File> projectRoots = new HashMap<>();
+            gitRoots.put(topLevelRoot, session.getTopLevelProject());
+            for (MavenProject project : session.getProjects()) {
+                File gitRoot = ScmUtils.findGitRoot(project.getBasedir());
+                if (gitRoot == null) {
+                    gitRoot = topLevelRoot;
                 }
-            } else {
-                logger.warn("Can't determine the Git branch. Not disabling any plugins.");
+                gitRoots.putIfAbsent(gitRoot, project);
+                projectRoots.put(project, gitRoot);
             }
 
-            if (pruneBuild) {
-                for (MavenProject project : session.getProjects()) {
+            if (branchCategories == null) {
+                branchCategories = Collections.emptyList();
+            }
+            logger.debug("Branch Categories: " + branchCategories);
+            try {
+                BranchClassifier.forPatterns(masterBranchPattern, supportBranchPattern, releaseBranchPattern, hotfixBranchPattern, developmentBranchPattern, branchCategories);
+            } catch (IllegalArgumentException iae) {
+                throw new MavenExecutionException(iae.getMessage(), iae);
+            }
+
+            final List<BranchCategory> categories = branchCategories;
+            final List<BranchProvider> branchProviderList = providers;
+            final int timeout = gitTimeoutSeconds;
+            final String[] patterns = {masterBranchPattern, supportBranchPattern, releaseBranchPattern, hotfixBranchPattern, developmentBranchPattern};
+            final String expression = gitBranchExpression;
+            final File cacheFile = branchCacheFile;
+            Map<File, GitBranchInfo> branches = resolveAll(gitRoots, project -> {
+                ScmUtils scmUtils = new ScmUtils(EnvironmentSnapshot.forSession(session), scmManager, project, new PlexusLoggerToMavenLog(logger),
+                        patterns[0], patterns[1], patterns[2], patterns[3], patterns[4], categories, branchProviderList, timeout);
+                return branchResolver.resolve(session, scmUtils, expression, cacheFile);
+            });
+
+            Set<File> prunedRoots = new HashSet<>();
+            for (Map.Entry<File, GitBranchInfo> branch : branches.entrySet()) {
+                GitBranchInfo branchInfo = branch.getValue();
+                if (branchInfo != null) {
+                    if (gitRoots.size() > 1) {
+                        logger.info("gitflow-helper-maven-plugin: Git working copy: " + branch.getKey());
+                    }
+                    logger.info(branchInfo.toString());
+                    if (branchInfo.getCategory() != null && (branchInfo.getType().equals(GitBranchType.MASTER) || branchInfo.getType().equals(GitBranchType.SUPPORT))) {
+                        logger.info("gitflow-helper-maven-plugin: Enabling MasterPromoteExtension. GIT_BRANCH: [" + branchInfo.getName() + "] matches branch category: [" + branchInfo.getCategory() + "] of type " + branchInfo.getType());
+                        prunedRoots.add(branch.getKey());
+                    } else if (branchInfo.getType().equals(GitBranchType.MASTER)) {
+                        logger.info("gitflow-helper-maven-plugin: Enabling MasterPromoteExtension. GIT_BRANCH: [" + branchInfo.getName() + "] matches masterBranchPattern: [" + masterBranchPattern + "]");
+                        prunedRoots.add(branch.getKey());
+                    } else if (branchInfo.getType().equals(GitBranchType.SUPPORT)) {
+                        logger.info("gitflow-helper-maven-plugin: Enabling MasterPromoteExtension. GIT_BRANCH: [" + branchInfo.getName() + "] matches supportBranchPattern: [" + supportBranchPattern + "]");
+                        prunedRoots.add(branch.getKey());
+                    }
+                } else {
+                    logger.warn("Can't determine the Git branch. Not disabling any plugins.");
+                }
+            }
+
+            if (exportBranchProperties == null) {
+                logger.debug("Using default export branch properties.");
+                exportBranchProperties = "true";
+            }
+            logger.debug("Export Branch Properties: " + exportBranchProperties);
+
+            for (MavenProject project : session.getProjects()) {
+                if (Boolean.parseBoolean(exportBranchProperties.trim()) && branches.get(projectRoots.get(project)) != null) {
+                    // Publish the branch before any plugin executes, so that their configuration can refer to it.
+                    File gitRoot = projectRoots.get(project);
+                    String headSha = gitRoot == null ? null : branchResolver.headSha(session, gitRoot, gitTimeoutSeconds * 1000L);
+                    new BranchProperties(branches.get(gitRoot), headSha).export(session, project);
+                }
+
+                if (prunedRoots.contains(projectRoots.get(project))) {
                     // Drop all the plugins from the build except for the gitflow-helper-maven-plugin, or plugins we
                     // invoked goals for which could be mapped back to plugins in our project build.
                     // Goals invoked from the commandline which cannot be mapped back to our project, will get warnings, but should still execute.
@@ -195,6 +350,56 @@ public class MasterPromoteExtension extends AbstractMavenLifecycleParticipant {
         }
     }
 
+    /**
+     * Resolves the branch of each git working copy, in parallel if there's more than one.
+     *
+     * @param gitRoots A project within each working copy, by the root of the working copy.
+     * @param resolver Resolves the branch for a project
+     * @return The branch of each working copy, by the root of the working copy.
+     */
+    private Map<File, GitBranchInfo> resolveAll(final Map<File, MavenProject> gitRoots, final Function<MavenProject, GitBranchInfo> resolver) throws MavenExecutionException {
+        Map<File, GitBranchInfo> branches = new LinkedHashMap<>();
+        if (gitRoots.size() == 1) {
+            Map.Entry<File, MavenProject> only = gitRoots.entrySet().iterator().next();
+            branches.put(only.getKey(), resolver.apply(only.getValue()));
+            return branches;
+        }
+
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(gitRoots.size(), Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "gitflow-helper-branch-resolver");
+            thread.setDaemon(true);
+            thread.setContextClassLoader(contextClassLoader);
+            return thread;
+        });
+        try {
+            Map<File, Future<GitBranchInfo>> futures = new LinkedHashMap<>();
+            for (Map.Entry<File, MavenProject> gitRoot : gitRoots.entrySet()) {
+                futures.put(gitRoot.getKey(), executor.submit(() -> resolver.apply(gitRoot.getValue())));
+            }
+            for (Map.Entry<File, Future<GitBranchInfo>> future : futures.entrySet()) {
+                branches.put(future.getKey(), future.getValue().get());
+            }
+        } catch (ExecutionException ee) {
+            throw new MavenExecutionException("Unable to resolve the git branch: " + ee.getCause().getMessage(), ee.getCause());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new MavenExecutionException("Interrupted resolving the git branch", ie);
+        } finally {
+            executor.shutdownNow();
+        }
+        return branches;
+    }
+
+    @Override
+    public void afterSessionEnd(MavenSession session) throws MavenExecutionException {
+        try {
+            branchResolver.close(session);
+        } catch (IOException ioe) {
+            logger.warn("gitflow-helper-maven-plugin: Unable to write the branch cache.", ioe);
+        }
+    }
+
     private String extractPluginConfigValue(String parameter, Plugin plugin) {
         String value = extractConfigValue(parameter, plugin.getConfiguration());
         for (int i = 0; i < plugin.getExecutions().size() && value == null; i++) {
@@ -203,6 +408,32 @@ public class MasterPromoteExtension extends AbstractMavenLifecycleParticipant {
         return value;
     }
 
+    private List<BranchCategory> extractBranchCategories(Plugin plugin) throws MavenExecutionException {
+        Xpp3Dom categories = extractConfigChild("branchCategories", plugin.getConfiguration());
+        for (int i = 0; i < plugin.getExecutions().size() && categories == null; i++) {
+            categories = extractConfigChild("branchCategories", plugin.getExecutions().get(i).getConfiguration());
+        }
+        if (categories == null) {
+            return null;
+        }
+
+        List<BranchCategory> branchCategories = new ArrayList<>(categories.getChildCount());
+        for (Xpp3Dom category : categories.getChildren()) {
+            String type = extractConfigValue("type", category);
+            try {
+                branchCategories.add(new BranchCategory(extractConfigValue("name", category), extractConfigValue("pattern", category),
+                        type == null ? null : GitBranchType.valueOf(type.trim().toUpperCase(Locale.ROOT))));
+            } catch (IllegalArgumentException iae) {
+                throw new MavenExecutionException("Unknown branch category type: '" + type + "'", iae);
+            }
+        }
+        return branchCategories;
+    }
+
+    private Xpp3Dom extractConfigChild(String parameter, Object configuration) {
+        return configuration instanceof Xpp3Dom ? ((Xpp3Dom) configuration).getChild(parameter) : null;
+    }
+
     private String extractConfigValue(String parameter, Object configuration) {
         try {
             return ((Xpp3Dom) configuration).getChild(parameter).getValue();
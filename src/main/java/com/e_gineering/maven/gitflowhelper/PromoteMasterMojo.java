@@ -6,6 +6,10 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
 
 /**
  * If the build is being executed from a DEVELOPMENT, HOTFIX or RELEASE branch, attach an artifact containing a list of
@@ -16,9 +20,17 @@ import org.apache.maven.plugins.annotations.Mojo;
  * are downloaded and attached to the current build as if they were generated by the 'package' phase and checked by the
  * 'verify' phase (which should have happened as part of the build deploying to 'stage')
  */
-@Mojo(name = "promote-master", defaultPhase = LifecyclePhase.INSTALL)
+@Mojo(name = "promote-master", defaultPhase = LifecyclePhase.INSTALL, threadSafe = true)
 public class PromoteMasterMojo extends AbstractGitflowBasedRepositoryMojo {
 
+    /**
+     * When the stage and release repositories are both file based, on the same file system, promote by linking the
+     * staged files into the release repository (writing its checksums and metadata) and skip the deploy plugin, rather
+     * than downloading, attaching and deploying them again.
+     */
+    @Parameter(defaultValue = "false", property = "localPromotion", required = true)
+    boolean localPromotion;
+
     @Override
     protected void execute(final GitBranchInfo gitBranchInfo) throws MojoExecutionException, MojoFailureException {
         switch (gitBranchInfo.getType()) {
@@ -31,8 +43,7 @@ public class PromoteMasterMojo extends AbstractGitflowBasedRepositoryMojo {
             }
             // In order to use attach-deployed, we need to build the artifactCatalog.
             case OTHER: {
-                String otherBranchesToDeploy = resolveExpression(otherDeployBranchPattern);
-                if (!"".equals(otherBranchesToDeploy) && gitBranchInfo.getName().matches(otherBranchesToDeploy)) {
+                if (isOtherDeployBranch(gitBranchInfo)) {
                     attachArtifactCatalog();
                 }
                 break;
@@ -40,6 +51,10 @@ public class PromoteMasterMojo extends AbstractGitflowBasedRepositoryMojo {
 
             case SUPPORT:
             case MASTER: {
+                if (localPromotion && promoteLocally()) {
+                    break;
+                }
+
                 getLog().info("Resolving & Reattaching existing artifacts from stageDeploymentRepository [" + stageDeploymentRepository + "]");
 
                 attachExistingArtifacts(stageDeploymentRepository, true);
@@ -48,4 +63,43 @@ public class PromoteMasterMojo extends AbstractGitflowBasedRepositoryMojo {
             }
         }
     }
+
+    /**
+     * Promotes the staged artifacts directly on the file system, if the repositories allow it.
+     *
+     * @return true if the artifacts were promoted.
+     */
+    private boolean promoteLocally() throws MojoExecutionException, MojoFailureException {
+        if ("maven-plugin".equals(project.getPackaging())) {
+            // The group metadata a deploy writes for plugins isn't maintained here.
+            getLog().debug("Not promoting a maven-plugin on the file system.");
+            return false;
+        }
+
+        LocalPromotion promotion;
+        try {
+            promotion = LocalPromotion.forRepositories(getDeploymentRepository(stageDeploymentRepository), getDeploymentRepository(releaseDeploymentRepository));
+        } catch (IOException ioe) {
+            getLog().debug("Unable to compare the file systems of the stage and release repositories.", ioe);
+            return false;
+        }
+        if (promotion == null) {
+            getLog().debug("The stage and release repositories aren't file based on the same file system.");
+            return false;
+        }
+
+        getLog().info("Promoting existing artifacts from stageDeploymentRepository [" + stageDeploymentRepository
+                + "] to releaseDeploymentRepository [" + releaseDeploymentRepository + "] on the file system");
+        try {
+            promotion.promote(project.getGroupId(), project.getArtifactId(), project.getVersion(), getLog());
+        } catch (FileNotFoundException fnfe) {
+            throw new MojoExecutionException("Could not locate staged artifacts: " + fnfe.getMessage(), fnfe);
+        } catch (IOException ioe) {
+            throw new MojoExecutionException("Failed to promote artifacts to releaseDeploymentRepository [" + releaseDeploymentRepository + "]", ioe);
+        }
+
+        project.getProperties().put("maven.deploy.skip", "true");
+        getLog().info("Setting maven.deploy.skip = 'true'");
+        return true;
+    }
 }
@@ -0,0 +1,501 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.transfer.ChecksumFailureException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A cache of resolved release artifacts, kept between builds, which is used in place of a throwaway local repository.
+ * <p/>
+ * Each entry is keyed by the artifact's coordinates and its SHA-256 checksum from the artifact catalog, or failing that
+ * the SHA-1 checksum the remote repository publishes for it, so an artifact that's been redeployed with the same version
+ * is downloaded again. Nothing but a download verified against that checksum is ever put in the cache, and an entry is
+ * verified again each time it's used, in case it's been modified since. Downloads are made into a work directory within
+ * the cache, then moved into place, so a concurrent build never sees a partial entry.
+ * <p/>
+ * Once the artifacts have been placed, the work directory is removed and the least recently used entries are evicted if
+ * the cache has grown past its size. Entries are moved into place holding the cache's lock file shared, and evicted
+ * holding it exclusively, so that only one build evicts at a time, and never while another is adding entries.
+ */
+final class PromotionCache {
+
+    private static final String ENTRIES = "entries";
+    private static final String WORK = "work";
+    private static final String LOCK = ".lock";
+
+    private static final Pattern SHA1 = Pattern.compile("[0-9a-f]{40}");
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+
+    /* Entries used this recently are never evicted, as a concurrent build may be about to place them. */
+    private static final long IN_USE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /* Work directories older than this were abandoned by a build which exited before removing its own. */
+    private static final long ABANDONED_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /* The lock of each cache directory used by this JVM, as a file lock can't be shared between its threads. */
+    private static final ConcurrentMap<Path, DirectoryLock> LOCKS = new ConcurrentHashMap<>();
+
+    private final File directory;
+    private final long maxBytes;
+    private final DirectoryLock lock;
+
+    /**
+     * @param directory The cache directory, created if need be.
+     * @param maxBytes  The size past which the least recently used entries are evicted.
+     */
+    PromotionCache(final File directory, final long maxBytes) {
+        this.directory = directory.getAbsoluteFile();
+        this.maxBytes = maxBytes;
+        this.lock = LOCKS.computeIfAbsent(this.directory.toPath().normalize(), path -> new DirectoryLock(path.resolve(LOCK)));
+    }
+
+    /**
+     * Creates a directory, within the cache, for a local repository to download artifacts into.
+     *
+     * @return The new work directory
+     * @throws IOException if it can't be created
+     */
+    File newWorkDirectory() throws IOException {
+        Path work = new File(directory, WORK).toPath();
+        Files.createDirectories(work);
+        return Files.createTempDirectory(work, "repo").toFile();
+    }
+
+    /**
+     * Wraps a resolver with this cache. Release artifacts whose checksum is catalogued, or can be resolved, are served
+     * from the cache, or resolved, verified and cached. Anything else is resolved as usual.
+     *
+     * @param checksums  Resolves the checksum files of artifacts
+     * @param artifacts  Resolves artifacts, into the work directory, verifying them against their catalogued checksum
+     * @param catalogued The catalog entry of an artifact, or null if it isn't catalogued
+     * @param log        For reporting cache hits and failures
+     * @return The caching resolver
+     */
+    ArtifactPipeline.Resolver resolver(final ArtifactPipeline.Resolver checksums, final ArtifactPipeline.Resolver artifacts,
+                                       final Function<Artifact, ArtifactCatalog.Entry> catalogued, final Log log) {
+        return request -> {
+            Artifact artifact = request.getArtifact();
+            ArtifactCatalog.Entry entry = catalogued.apply(artifact);
+            String checksum = null;
+            long size = -1;
+            if (!artifact.isSnapshot()) {
+                if (entry != null && entry.getSha256() != null) {
+                    checksum = entry.getSha256();
+                    size = entry.getSize();
+                } else {
+                    checksum = remoteChecksum(request, checksums, log);
+                }
+            }
+            if (checksum == null) {
+                return artifacts.resolve(request);
+            }
+
+            File cached = get(artifact, checksum, size, log);
+            if (cached != null) {
+                log.debug("    Resolved from promotion cache: " + cached);
+                ArtifactResult result = new ArtifactResult(request);
+                result.setArtifact(artifact.setFile(cached));
+                return result;
+            }
+
+            ArtifactResult result = artifacts.resolve(request);
+            try {
+                result.setArtifact(result.getArtifact().setFile(put(artifact, checksum, result.getArtifact().getFile())));
+            } catch (ChecksumFailureException cfe) {
+                throw new ArtifactResolutionException(Collections.singletonList(result),
+                        "Resolved " + artifact + " does not match the remote repository's checksum: " + cfe.getMessage(), cfe);
+            } catch (IOException ioe) {
+                log.warn("Failed to cache " + artifact + ": " + ioe.getMessage());
+            }
+            return result;
+        };
+    }
+
+    /**
+     * @return The checksum the remote repository has for the artifact, or null if it has none.
+     */
+    private static String remoteChecksum(final ArtifactRequest request, final ArtifactPipeline.Resolver checksums, final Log log) {
+        Artifact artifact = request.getArtifact();
+        Artifact checksum = new DefaultArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getClassifier(),
+                artifact.getExtension() + ".sha1", artifact.getVersion());
+        try {
+            ArtifactResult result = checksums.resolve(new ArtifactRequest(checksum, request.getRepositories(), request.getRequestContext()));
+            return readChecksum(result.getArtifact().getFile());
+        } catch (ArtifactResolutionException | IOException ex) {
+            log.debug("    No checksum for " + artifact + ", not caching it: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads a SHA-1 checksum file, in which the checksum may be followed by the name of the file it's for.
+     */
+    static String readChecksum(final File file) throws IOException {
+        String content = new String(Files.readAllBytes(file.toPath()), UTF_8).trim();
+        int end = 0;
+        while (end < content.length() && !Character.isWhitespace(content.charAt(end))) {
+            end++;
+        }
+        String checksum = content.substring(0, end).toLowerCase(Locale.ROOT);
+        // It names the entry's directory, so it had better be a checksum.
+        if (!SHA1.matcher(checksum).matches()) {
+            throw new IOException("Not a SHA-1 checksum file: " + file);
+        }
+        return checksum;
+    }
+
+    /**
+     * Looks up an entry, verifying it against its checksum, and marking it as used. An entry which no longer matches
+     * its checksum is evicted.
+     *
+     * @param artifact The artifact
+     * @param checksum Its SHA-256 or SHA-1 checksum
+     * @param size     Its size, or -1 if it isn't known
+     * @param log      For reporting evictions
+     * @return The cached file, or null if there is none.
+     */
+    File get(final Artifact artifact, final String checksum, final long size, final Log log) {
+        File entry = entry(artifact, checksum);
+        try {
+            if (!entry.isFile()) {
+                return null;
+            }
+            if ((size >= 0 && entry.length() != size) || !checksum.equals(checksum(entry, checksum))) {
+                log.warn("Evicting " + entry + " from the promotion cache, as it no longer matches its checksum.");
+                Files.deleteIfExists(entry.toPath());
+                return null;
+            }
+            Files.setLastModifiedTime(entry.toPath(), FileTime.fromMillis(System.currentTimeMillis()));
+            return entry;
+        } catch (IOException ioe) {
+            // Evicted since.
+            return null;
+        }
+    }
+
+    /**
+     * @return The checksum of the file, computed with the algorithm of the given SHA-256 or SHA-1 checksum.
+     */
+    private static String checksum(final File file, final String like) throws IOException {
+        if (SHA256.matcher(like).matches()) {
+            return ArtifactCatalog.sha256(file);
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return LocalPromotion.checksums(in)[1];
+        }
+    }
+
+    /**
+     * @return true if the file is within the cache.
+     */
+    boolean contains(final File file) {
+        return file.getAbsoluteFile().toPath().normalize().startsWith(directory.toPath());
+    }
+
+    /**
+     * Adds a downloaded artifact to the cache, having checked it against the remote repository's checksum. A catalogued
+     * checksum isn't checked again, as the download was verified against it as it was resolved.
+     *
+     * @param artifact   The artifact
+     * @param checksum   Its catalogued SHA-256 checksum, or the SHA-1 checksum the remote repository has for it
+     * @param downloaded The downloaded file
+     * @return The cached file
+     * @throws ChecksumFailureException if the download doesn't match the remote repository's checksum
+     * @throws IOException              if it can't be cached.
+     */
+    File put(final Artifact artifact, final String checksum, final File downloaded) throws ChecksumFailureException, IOException {
+        if (SHA1.matcher(checksum).matches()) {
+            String actual = checksum(downloaded, checksum);
+            if (!actual.equals(checksum)) {
+                throw new ChecksumFailureException(checksum, actual);
+            }
+        }
+        File entry = entry(artifact, checksum);
+        try (Closeable shared = lockShared()) {
+            ArtifactFiles.publish(downloaded, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Holds the cache's lock shared, as while adding entries, waiting for any build evicting entries to finish.
+     *
+     * @return Releases the lock when closed.
+     * @throws IOException if the lock file can't be locked
+     */
+    Closeable lockShared() throws IOException {
+        Files.createDirectories(directory.toPath());
+        return lock.shared();
+    }
+
+    /**
+     * @return The file of the entry for the artifact, named as the artifact is in a repository.
+     */
+    private File entry(final Artifact artifact, final String checksum) {
+        File path = new File(LocalPromotion.path(artifact));
+        return new File(new File(new File(directory, ENTRIES), path.getParent()), checksum + File.separator + path.getName());
+    }
+
+    /**
+     * Removes the work directory, then evicts the least recently used entries if the cache is too large.
+     *
+     * @param workDirectory The work directory to remove
+     * @param log           For reporting failures
+     */
+    void cleanup(final File workDirectory, final Log log) {
+        try {
+            FileUtils.deleteDirectory(workDirectory);
+        } catch (IOException ioe) {
+            log.warn("Failed to cleanup temporary repository directory: " + workDirectory);
+        }
+        try {
+            evict(log);
+        } catch (IOException ioe) {
+            log.warn("Failed to evict artifacts from promotion cache " + directory + ": " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache is no larger than its size, unless another build is
+     * already doing so, or adding entries.
+     */
+    void evict(final Log log) throws IOException {
+        Files.createDirectories(directory.toPath());
+        try (Closeable exclusive = lock.tryExclusive()) {
+            if (exclusive == null) {
+                log.debug("Promotion cache " + directory + " is in use by another build, not evicting.");
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            removeAbandonedWork(now, log);
+
+            Path entries = new File(directory, ENTRIES).toPath();
+            if (!Files.isDirectory(entries)) {
+                return;
+            }
+
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(entries)) {
+                files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+            }
+            List<Entry> cached = new ArrayList<>(files.size());
+            long size = 0;
+            for (Path file : files) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    cached.add(new Entry(file, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    size += attributes.size();
+                } catch (IOException ioe) {
+                    // Removed since.
+                }
+            }
+
+            cached.sort(Comparator.comparingLong(entry -> entry.lastUsed));
+            for (Entry entry : cached) {
+                if (size <= maxBytes || entry.lastUsed > now - IN_USE_MILLIS) {
+                    break;
+                }
+                if (Files.deleteIfExists(entry.file)) {
+                    log.debug("Evicted from promotion cache: " + entry.file);
+                }
+                size -= entry.size;
+                removeEmptyDirectories(entry.file.getParent(), entries);
+            }
+        }
+    }
+
+    private void removeAbandonedWork(final long now, final Log log) throws IOException {
+        File[] work = new File(directory, WORK).listFiles();
+        if (work == null) {
+            return;
+        }
+        for (File abandoned : work) {
+            if (abandoned.lastModified() < now - ABANDONED_MILLIS) {
+                log.debug("Removing abandoned promotion cache work directory: " + abandoned);
+                FileUtils.deleteDirectory(abandoned);
+            }
+        }
+    }
+
+    private static void removeEmptyDirectories(final Path from, final Path root) {
+        for (Path dir = from; dir != null && !dir.equals(root); dir = dir.getParent()) {
+            try {
+                Files.deleteIfExists(dir);
+            } catch (IOException ioe) {
+                // ie: DirectoryNotEmptyException
+                return;
+            }
+        }
+    }
+
+    /**
+     * The lock file of a cache directory, held shared by any number of threads adding entries, or exclusively by one
+     * thread evicting them. The file itself is locked while any thread of this JVM holds it, to keep other builds out.
+     */
+    private static final class DirectoryLock {
+        private final Path file;
+        private final ReentrantReadWriteLock threads = new ReentrantReadWriteLock();
+
+        /* Guarded by this. */
+        private int holders;
+        private FileChannel channel;
+        private FileLock fileLock;
+
+        private DirectoryLock(final Path file) {
+            this.file = file;
+        }
+
+        Closeable shared() throws IOException {
+            threads.readLock().lock();
+            try {
+                synchronized (this) {
+                    if (holders == 0) {
+                        FileChannel opened = open();
+                        try {
+                            fileLock = lockShared(opened);
+                        } catch (IOException | RuntimeException ex) {
+                            opened.close();
+                            throw ex;
+                        }
+                        channel = opened;
+                    }
+                    holders++;
+                }
+            } catch (IOException | RuntimeException ex) {
+                threads.readLock().unlock();
+                throw ex;
+            }
+            return () -> {
+                try {
+                    synchronized (this) {
+                        if (--holders == 0) {
+                            release();
+                        }
+                    }
+                } finally {
+                    threads.readLock().unlock();
+                }
+            };
+        }
+
+        /**
+         * @return Releases the lock when closed, or null if another thread or build holds it.
+         */
+        Closeable tryExclusive() throws IOException {
+            if (!threads.writeLock().tryLock()) {
+                return null;
+            }
+            try {
+                synchronized (this) {
+                    FileChannel opened = open();
+                    FileLock locked;
+                    try {
+                        locked = opened.tryLock();
+                    } catch (OverlappingFileLockException ofle) {
+                        // Held by another copy of the plugin in this JVM.
+                        locked = null;
+                    } catch (IOException | RuntimeException ex) {
+                        opened.close();
+                        throw ex;
+                    }
+                    if (locked == null) {
+                        opened.close();
+                        threads.writeLock().unlock();
+                        return null;
+                    }
+                    channel = opened;
+                    fileLock = locked;
+                }
+            } catch (IOException | RuntimeException ex) {
+                threads.writeLock().unlock();
+                throw ex;
+            }
+            return () -> {
+                try {
+                    synchronized (this) {
+                        release();
+                    }
+                } finally {
+                    threads.writeLock().unlock();
+                }
+            };
+        }
+
+        private FileChannel open() throws IOException {
+            return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        private static FileLock lockShared(final FileChannel channel) throws IOException {
+            while (true) {
+                try {
+                    return channel.lock(0, Long.MAX_VALUE, true);
+                } catch (OverlappingFileLockException ofle) {
+                    // Held by another copy of the plugin in this JVM, which releases it as soon as it's done.
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted waiting for the promotion cache lock");
+                    }
+                }
+            }
+        }
+
+        private void release() throws IOException {
+            try {
+                fileLock.release();
+            } finally {
+                fileLock = null;
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final Path file;
+        private final long size;
+        private final long lastUsed;
+
+        private Entry(final Path file, final long size, final long lastUsed) {
+            this.file = file;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -13,7 +13,7 @@ import org.apache.maven.plugins.annotations.Mojo;
 /**
  * Set the target repository for deployment based upon the GIT_BRANCH being built.
  */
-@Mojo(name = "retarget-deploy", defaultPhase = LifecyclePhase.VALIDATE)
+@Mojo(name = "retarget-deploy", defaultPhase = LifecyclePhase.VALIDATE, threadSafe = true)
 public class RetargetDeployMojo extends AbstractGitflowBasedRepositoryMojo {
     @Override
     protected void execute(final GitBranchInfo gitBranchInfo) throws MojoExecutionException, MojoFailureException {
@@ -38,8 +38,7 @@ public class RetargetDeployMojo extends AbstractGitflowBasedRepositoryMojo {
                 break;
             }
             case OTHER: {
-                String otherBranchesToDeploy = resolveExpression(otherDeployBranchPattern);
-	            if (!"".equals(otherBranchesToDeploy) && gitBranchInfo.getName().matches(otherBranchesToDeploy)) {
+                if (isOtherDeployBranch(gitBranchInfo)) {
                     setTargetSnapshots();
 
                     project.setVersion(getAsBranchSnapshotVersion(project.getVersion(), gitBranchInfo.getName()));
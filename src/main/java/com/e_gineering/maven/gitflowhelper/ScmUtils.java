@@ -1,36 +1,36 @@
 package com.e_gineering.maven.gitflowhelper;
 
+import com.e_gineering.maven.gitflowhelper.git.GitDirectory;
+import com.e_gineering.maven.gitflowhelper.git.GitProcess;
+import com.e_gineering.maven.gitflowhelper.git.GitProcesses;
+import com.e_gineering.maven.gitflowhelper.git.HeadState;
 import com.e_gineering.maven.gitflowhelper.properties.ExpansionBuffer;
+import com.e_gineering.maven.gitflowhelper.properties.PropertyLookup;
 import com.e_gineering.maven.gitflowhelper.properties.PropertyResolver;
 import org.apache.commons.lang.StringUtils;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.scm.ScmException;
-import org.apache.maven.scm.ScmFileSet;
-import org.apache.maven.scm.log.ScmLogDispatcher;
-import org.apache.maven.scm.log.ScmLogger;
 import org.apache.maven.scm.manager.ScmManager;
-import org.apache.maven.scm.provider.git.gitexe.command.GitCommandLineUtils;
-import org.apache.maven.scm.provider.git.gitexe.command.branch.GitBranchCommand;
 import org.apache.maven.scm.provider.git.repository.GitScmProviderRepository;
 import org.apache.maven.scm.repository.ScmRepository;
-import org.apache.maven.scm.util.AbstractConsumer;
-import org.codehaus.plexus.util.cli.CommandLineUtils;
-import org.codehaus.plexus.util.cli.Commandline;
-import org.codehaus.plexus.util.cli.StreamConsumer;
 
-import java.util.HashSet;
-import java.util.Properties;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 class ScmUtils {
 
     private static final String DEFAULT_URL_EXPRESSION = "${env.GIT_URL}";
     private static final String DEFAULT_BRANCH_EXPRESSION = "${env.GIT_BRANCH}";
 
-    private Properties systemEnvVars;
+    private PropertyLookup environment;
     private ScmManager scmManager;
     private MavenProject project;
     private Log log;
@@ -40,12 +40,16 @@ class ScmUtils {
     private String hotfixBranchPattern;
     private String developmentBranchPattern;
     private String featureOrBugfixBranchPattern;
+    private List<BranchProvider> branchProviders;
+    private long gitTimeoutMillis;
+    private BranchClassifier classifier;
 
-    public ScmUtils(final Properties systemEnvVars, final ScmManager scmManager, final MavenProject project, final Log log,
+    public ScmUtils(final PropertyLookup environment, final ScmManager scmManager, final MavenProject project, final Log log,
                     final String masterBranchPattern, final String supportBranchPattern, final String releaseBranchPattern,
-                    final String hotfixBranchPattern, final String developmentBranchPattern)
+                    final String hotfixBranchPattern, final String developmentBranchPattern,
+                    final List<BranchCategory> branchCategories, final List<BranchProvider> branchProviders, final int gitTimeout)
     {
-        this.systemEnvVars = systemEnvVars;
+        this.environment = environment;
         this.scmManager = scmManager;
         this.project = project;
         this.log = log;
@@ -55,6 +59,10 @@ class ScmUtils {
         this.hotfixBranchPattern = hotfixBranchPattern;
         this.developmentBranchPattern = developmentBranchPattern;
         this.featureOrBugfixBranchPattern = featureOrBugfixBranchPattern;
+        this.branchProviders = branchProviders;
+        this.gitTimeoutMillis = TimeUnit.SECONDS.toMillis(gitTimeout);
+        this.classifier = BranchClassifier.forPatterns(masterBranchPattern, supportBranchPattern, releaseBranchPattern,
+                hotfixBranchPattern, developmentBranchPattern, branchCategories);
     }
 
     /**
@@ -85,81 +93,68 @@ class ScmUtils {
     }
 
     /**
-     * Attempts to resolve the current branch of the build.
+     * Locates the root of the git working copy containing the given directory.
+     *
+     * @param directory The directory to start searching from (usually the project basedir)
+     * @return The first directory (walking up from <code>directory</code>) containing a <code>.git</code> entry, or null if there is none.
      */
-    public GitBranchInfo resolveBranchInfo(final String gitBranchExpression)
-    {
-        // Start off with the name or expression provided from the config parameter.
-        // Remember, the config parameter may be `null` (it is by default).
-        String branchNameOrExpression = gitBranchExpression;
-
-
-        String connectionUrl = resolveUrlOrExpression(project);
-
-        try {
-            ScmRepository repository = scmManager.makeScmRepository(connectionUrl);
-            if (!GitScmProviderRepository.PROTOCOL_GIT.equals(scmManager.getProviderByRepository(repository).getScmType())) {
-                throw new ScmException("Unable to resolve branches from non-git <scm> definitions.");
+    static File findGitRoot(final File directory) {
+        for (File candidate = directory == null ? null : directory.getAbsoluteFile(); candidate != null; candidate = candidate.getParentFile()) {
+            if (new File(candidate, ".git").exists()) {
+                return candidate;
             }
+        }
+        return null;
+    }
 
-            // We know it's a GIT repo...
-            GitScmProviderRepository gitScmProviderRepository = (GitScmProviderRepository) repository.getProviderRepository();
-
-            ScmFileSet fileSet = new ScmFileSet(project.getBasedir());
-            ScmLogDispatcher scmLogger = new ScmLogDispatcher();
+    /**
+     * Builds a key identifying everything a call to {@link #resolveBranchInfo(String, GitProcesses, BranchCache, Map)} depends upon: the git root
+     * (or the basedir outside of a git working copy), the kind of SCM configured, the branch providers, the branch
+     * patterns and categories, and the expression used when no provider can answer.
+     *
+     * @param gitBranchExpression The (possibly null) configured gitBranchExpression
+     * @return A key suitable for caching the resolved branch info.
+     */
+    String getResolutionKey(final String gitBranchExpression) {
+        File root = findGitRoot(project.getBasedir());
+        if (root == null) {
+            root = project.getBasedir();
+        }
 
-            try {
-                branchNameOrExpression = GitBranchCommand.getCurrentBranch(scmLogger, gitScmProviderRepository, fileSet);
-            } catch (ScmException scme) {
-                log.debug("Exception attempting to resolve a local branch. Attempting detached HEAD resolution");
+        // Only the scm provider matters. Child modules inherit the connection with their artifactId appended.
+        String connectionUrl = resolveUrlOrExpression(project);
+        int providerEnd = connectionUrl.indexOf(':', "scm:".length());
+        String provider = connectionUrl.startsWith("scm:") && providerEnd > 0 ? connectionUrl.substring(0, providerEnd) : connectionUrl;
 
-                // Try to resolve a detached HEAD to a single branch.
-                // If we have more than one branch resolving, make sure they're the same type.
-                // If there are more than one _type_ of branch resolved for the detached HEAD, then we'll need to
-                // fall back to the branchNameOrExpression (to resolve via environment properties).
+        return String.valueOf(root) + '\n' + provider + '\n' + branchProviders + '\n' +
+                classifier.getKey() + '\n' + gitBranchExpression;
+    }
 
-                // Do a rev-parse to get the commit hash that HEAD points to
-                String sha1 = sha1ForHEAD(scmLogger, fileSet);
-                log.debug("HEAD is pointing at " + sha1);
+    /**
+     * Attempts to resolve the current branch of the build.
+     * <p/>
+     * The branch providers are consulted in order, and the first to name a branch wins. If none of them can, the
+     * configured gitBranchExpression (or <code>${env.GIT_BRANCH}</code>) is resolved instead.
+     *
+     * @param gitBranchExpression The (possibly null) configured gitBranchExpression
+     * @param gitProcesses        Used if the git repository can't be read in-process
+     * @param branchCache         Branch names resolved by previous builds, or null if not caching.
+     * @param prefetched          The state of HEAD being read in the background, by git root.
+     */
+    public GitBranchInfo resolveBranchInfo(final String gitBranchExpression, final GitProcesses gitProcesses,
+                                           final BranchCache branchCache, final Map<File, Future<HeadState>> prefetched)
+    {
+        // Start off with the name or expression provided from the config parameter.
+        // Remember, the config parameter may be `null` (it is by default).
+        String branchNameOrExpression = gitBranchExpression;
 
-                // Now use show-ref to determine the branches that HEAD's sha1 points to.
-                Set<String> branches = branchesForSha1(sha1, scmLogger, fileSet);
-                log.debug("Found the following branches for " + sha1 + ": " + branches);
-
-                // State tracking as we loop
-                GitBranchType type = null;
-                String name = null;
-
-                for (String candidateName : branches) {
-                    GitBranchType candidateType = resolveBranchType(candidateName).getType();
-                    // First iteration of a resolved type.
-                    if (type == null){
-                        type = candidateType;
-                        name = candidateName; // Use the first name we get.
-                        continue;
-                    }
-
-                    // A subsequent branch which resolved.
-                    if (candidateType != type) {
-                        throw new ScmException("Multiple branches with different types resolved for " + sha1);
-                    }
-
-                    // If a branch type is a versioned branch, there can be only one branch type matching that version.
-                    if (GitBranchType.UNIQUELY_VERSIONED_TYPES.contains(candidateType)) {
-                        throw new ScmException("Multiple branches of different type reference the same release version for " + sha1);
-                    }
-                }
-
-                // Detached head resolution was successful.
-                // Either we iterated once, or all of the subsequent types were resolved to the same type as the
-                // first branch, and there was only one of those branches which may have been a uniquely versioned branch.
-                branchNameOrExpression = name;
+        for (BranchProvider provider : branchProviders) {
+            String branchName = provider == BranchProvider.SCM ? resolveScmBranchName(gitProcesses, branchCache, prefetched) : provider.resolveBranchName(environment);
+            if (branchName != null) {
+                log.debug("Branch '" + branchName + "' provided by: " + provider.name().toLowerCase());
+                branchNameOrExpression = branchName;
+                break;
             }
-        } catch (ScmException scme) {
-            // Only do the following if the SCM resolution fails miserably.
-            log.warn("Unable to resolve a branch from SCM. Falling back to property replacement.", scme);
-        } catch (IllegalArgumentException iae) {
-            log.debug("IllegalArgumentException likely the result of the <scm> block missing from the pom.xml", iae);
         }
 
         // Make sure we have a non-null value. (may have been passed in from the @Parameter)
@@ -168,7 +163,7 @@ class ScmUtils {
         }
 
         // Now force it to resolve any properties.
-        String resolvedBranchName = PropertyResolver.resolveValue(branchNameOrExpression, project.getProperties(), systemEnvVars);
+        String resolvedBranchName = PropertyResolver.resolveValue(branchNameOrExpression, project.getProperties(), environment);
 
         if (!branchNameOrExpression.equals(resolvedBranchName) || log.isDebugEnabled()) { // Resolves Issue #9
             if (log.isDebugEnabled()) {
@@ -184,96 +179,217 @@ class ScmUtils {
         return resolveBranchType(resolvedBranchName);
     }
 
-    private GitBranchInfo resolveBranchType(String branchName) {
-        if (branchName == null || branchName.equals("") || branchName.equals(DEFAULT_BRANCH_EXPRESSION)) {
-            return new GitBranchInfo("", GitBranchType.UNDEFINED, null); // Force UNDEFINED to be "" for the name.
-        } else if (branchName.matches(masterBranchPattern)) {
-            return new GitBranchInfo(branchName, GitBranchType.MASTER, masterBranchPattern);
-        } else if (branchName.matches(supportBranchPattern)) {
-            return new GitBranchInfo(branchName, GitBranchType.SUPPORT, supportBranchPattern);
-        } else if (branchName.matches(releaseBranchPattern)) {
-            return new GitBranchInfo(branchName, GitBranchType.RELEASE, releaseBranchPattern);
-        } else if (branchName.matches(hotfixBranchPattern)) {
-            return new GitBranchInfo(branchName, GitBranchType.HOTFIX, hotfixBranchPattern);
-        } else if (branchName.matches(developmentBranchPattern)) {
-            return new GitBranchInfo(branchName, GitBranchType.DEVELOPMENT, developmentBranchPattern);
-        } else {
-            return new GitBranchInfo(branchName, GitBranchType.OTHER, null);
+    /**
+     * Resolves the branch name from the git repository described by the project's &lt;scm&gt; block.
+     *
+     * @return The branch name, or null if the SCM isn't git, or git can't name a single branch.
+     */
+    private String resolveScmBranchName(final GitProcesses gitProcesses, final BranchCache branchCache, final Map<File, Future<HeadState>> prefetched) {
+        String connectionUrl = resolveUrlOrExpression(project);
+
+        try {
+            ScmRepository repository = scmManager.makeScmRepository(connectionUrl);
+            if (!GitScmProviderRepository.PROTOCOL_GIT.equals(scmManager.getProviderByRepository(repository).getScmType())) {
+                throw new ScmException("Unable to resolve branches from non-git <scm> definitions.");
+            }
+
+            // We know it's a GIT repo...
+            try {
+                return readBranchName(branchCache, prefetched);
+            } catch (IOException ioe) {
+                log.debug("Unable to read the git repository in-process. Falling back to the git executable.", ioe);
+                return execBranchName(gitProcesses);
+            }
+        } catch (ScmException scme) {
+            // Only do the following if the SCM resolution fails miserably.
+            log.warn("Unable to resolve a branch from SCM. Falling back to property replacement.", scme);
+        } catch (IllegalArgumentException iae) {
+            log.debug("IllegalArgumentException likely the result of the <scm> block missing from the pom.xml", iae);
         }
+        return null;
     }
 
-    private static String sha1ForHEAD(ScmLogger logger, ScmFileSet fileSet) throws ScmException {
-        Commandline cl = GitCommandLineUtils.getBaseGitCommandLine( fileSet.getBasedir(), "rev-parse" );
-        cl.createArg().setValue("HEAD");
+    /**
+     * Resolves the branch name by reading the .git directory directly, or from the build daemon's or the on-disk
+     * branch cache if the repository is unchanged since the name was cached.
+     *
+     * @throws IOException if the repository can't be read in-process, and the git executable should be used instead.
+     * @throws ScmException if the repository was read, but didn't resolve to a usable branch.
+     */
+    private String readBranchName(final BranchCache branchCache, final Map<File, Future<HeadState>> prefetched) throws IOException, ScmException {
+        WatchedBranchCache watchedBranchCache = WatchedBranchCache.forDaemon();
+        if (watchedBranchCache != null) {
+            String watchedBranchName = watchedBranchCache.get(project.getBasedir(), patternsHash());
+            if (watchedBranchName != null) {
+                log.debug("Using the branch name cached by the build daemon: " + watchedBranchName);
+                return watchedBranchName;
+            }
+        }
 
-        RevParseConsumer rpConsumer = new RevParseConsumer(logger);
-        execGitCmd(logger, rpConsumer, cl);
+        GitDirectory gitDirectory = GitDirectory.locate(project.getBasedir());
+        if (gitDirectory == null) {
+            throw new ScmException("Project basedir is not within a git working copy: " + project.getBasedir());
+        }
 
-        return rpConsumer.getRev();
-    }
+        WatchedBranchCache.Snapshot snapshot = null;
+        if (watchedBranchCache != null) {
+            try {
+                snapshot = watchedBranchCache.watch(gitDirectory);
+            } catch (IOException ioe) {
+                log.debug("Unable to watch the git repository for changes.", ioe);
+            }
+        }
 
-    private static Set<String> branchesForSha1(String sha1, ScmLogger logger, ScmFileSet fileSet) throws ScmException {
-        Commandline cl = GitCommandLineUtils.getBaseGitCommandLine( fileSet.getBasedir(), "show-ref" );
+        String currentHead = null;
+        String validityKey = null;
+        if (branchCache != null) {
+            currentHead = gitDirectory.readHead();
+            validityKey = BranchCache.validityKey(gitDirectory, currentHead, patternsHash());
+            String cachedBranchName = branchCache.get(gitDirectory.getWorkTree(), validityKey);
+            if (cachedBranchName != null) {
+                log.debug("Using the cached branch name: " + cachedBranchName);
+                return cachedBranchName;
+            }
+        }
 
-        ShowRefForSha1Consumer srConsumer = new ShowRefForSha1Consumer(sha1, logger);
-        execGitCmd(logger, srConsumer, cl);
+        // The state of HEAD was prefetched before the validity checks above, so it's only used, and cached under them,
+        // if HEAD hasn't changed since.
+        boolean cacheable = true;
+        HeadState head = joinPrefetched(prefetched.get(gitDirectory.getWorkTree()));
+        if (head != null) {
+            if (currentHead == null) {
+                currentHead = gitDirectory.readHead();
+            }
+            if (!currentHead.equals(head.getHead())) {
+                log.debug("HEAD has changed since it was prefetched.");
+                head = null;
+            } else if (head.getBranch() == null) {
+                // The branches pointing at a detached HEAD were listed before the refs were checked.
+                cacheable = false;
+            }
+        }
+        if (head == null) {
+            head = HeadState.read(gitDirectory);
+        }
 
-        return srConsumer.getBranches();
-    }
+        String branchName = head.getBranch();
+        if (branchName == null) {
+            log.debug("HEAD is detached. Attempting detached HEAD resolution");
+            log.debug("HEAD is pointing at " + head.getSha1());
 
-    private static void execGitCmd(ScmLogger logger, StreamConsumer consumer, Commandline cl) throws ScmException {
-        CommandLineUtils.StringStreamConsumer stderr = new CommandLineUtils.StringStreamConsumer();
+            branchName = resolveDetachedHead(head.getSha1(), head.getBranches());
+        }
 
-        int exitCode = GitCommandLineUtils.execute(cl, consumer, stderr, logger);
+        if (!cacheable || branchName == null) {
+            return branchName;
+        }
+        if (snapshot != null) {
+            watchedBranchCache.put(project.getBasedir(), patternsHash(), snapshot, branchName);
+        }
+        if (branchCache != null) {
+            try {
+                branchCache.put(gitDirectory.getWorkTree(), validityKey, branchName);
+            } catch (IOException ioe) {
+                log.warn("Unable to write the branch cache.", ioe);
+            }
+        }
+        return branchName;
+    }
 
-        if (exitCode != 0)
-        {
-            throw new ScmException("Git command failed: " + stderr.getOutput());
+    /**
+     * Waits for the state of HEAD read in the background, if any.
+     *
+     * @return The state of HEAD, or null if it wasn't prefetched, or couldn't be read in the background.
+     */
+    private HeadState joinPrefetched(final Future<HeadState> prefetch) {
+        if (prefetch == null) {
+            return null;
         }
+        try {
+            return prefetch.get();
+        } catch (ExecutionException ee) {
+            log.debug("Unable to read the state of HEAD in the background.", ee.getCause());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
     }
 
-    private static class RevParseConsumer extends AbstractConsumer {
+    private String patternsHash() {
+        return Integer.toHexString(classifier.getKey().hashCode());
+    }
 
-        private String rev;
+    /**
+     * Resolves the branch name by asking git, through the git processes shared by the build.
+     */
+    private String execBranchName(final GitProcesses gitProcesses) throws ScmException {
+        File gitRoot = findGitRoot(project.getBasedir());
+        GitProcess git = gitProcesses.forDirectory(gitRoot != null ? gitRoot : project.getBasedir(), gitTimeoutMillis);
 
-        public RevParseConsumer(final ScmLogger logger) {
-            super(logger);
-        }
+        try {
+            String branchName = git.getCurrentBranch();
+            if (branchName == null) {
+                log.debug("HEAD is detached. Attempting detached HEAD resolution");
 
-        public void consumeLine(final String line) {
-            rev = line.trim();
-        }
+                String sha1 = git.revParse("HEAD");
+                log.debug("HEAD is pointing at " + sha1);
 
-        public String getRev() {
-            return rev;
+                branchName = resolveDetachedHead(sha1, git.branchesFor(sha1));
+            }
+            return branchName;
+        } catch (IOException ioe) {
+            throw new ScmException("Git command failed: " + ioe.getMessage(), ioe);
         }
     }
 
-    private static class ShowRefForSha1Consumer extends AbstractConsumer {
-
-        /* Pattern doesn't support remote names with a forward slash in it, but what are the odds? :-) */
-        private static final Pattern SHOW_REF_PATTERN = Pattern.compile("(?<sha1>[a-z0-9]{40}) (?:refs/heads/|refs/remotes/[\\w-.]+/)(?<branch>[\\w-/.]+)");
-        private final String sha1HEAD;
-        private final Set<String> branches = new HashSet<>();
+    /**
+     * Try to resolve a detached HEAD to a single branch.
+     * If we have more than one branch resolving, make sure they're the same type.
+     * If there are more than one _type_ of branch resolved for the detached HEAD, then we'll need to
+     * fall back to the branchNameOrExpression (to resolve via environment properties).
+     *
+     * @param sha1     The commit HEAD points to
+     * @param branches The branches pointing to the same commit
+     * @return The name of the branch to build as, or null if no branches point to the commit.
+     * @throws ScmException if the branches are ambiguous.
+     */
+    private String resolveDetachedHead(final String sha1, final Set<String> branches) throws ScmException {
+        log.debug("Found the following branches for " + sha1 + ": " + branches);
+
+        // State tracking as we loop
+        GitBranchType type = null;
+        String name = null;
+
+        for (String candidateName : branches) {
+            GitBranchType candidateType = resolveBranchType(candidateName).getType();
+            // First iteration of a resolved type.
+            if (type == null){
+                type = candidateType;
+                name = candidateName; // Use the first name we get.
+                continue;
+            }
 
-        public ShowRefForSha1Consumer(final String sha1HEAD, final ScmLogger logger) {
-            super(logger);
-            this.sha1HEAD = sha1HEAD;
-        }
+            // A subsequent branch which resolved.
+            if (candidateType != type) {
+                throw new ScmException("Multiple branches with different types resolved for " + sha1);
+            }
 
-        public void consumeLine(final String line) {
-            Matcher m = SHOW_REF_PATTERN.matcher(line.trim());
-            if (m.matches()) {
-                String sha1 = m.group("sha1");
-                if (sha1.equals(sha1HEAD)) {
-                    String branch = m.group("branch");
-                    branches.add(branch);
-                }
+            // If a branch type is a versioned branch, there can be only one branch type matching that version.
+            if (GitBranchType.UNIQUELY_VERSIONED_TYPES.contains(candidateType)) {
+                throw new ScmException("Multiple branches of different type reference the same release version for " + sha1);
             }
         }
 
-        public Set<String> getBranches() {
-            return branches;
+        // Detached head resolution was successful.
+        // Either we iterated once, or all of the subsequent types were resolved to the same type as the
+        // first branch, and there was only one of those branches which may have been a uniquely versioned branch.
+        return name;
+    }
+
+    private GitBranchInfo resolveBranchType(String branchName) {
+        if (DEFAULT_BRANCH_EXPRESSION.equals(branchName)) {
+            branchName = null;
         }
+        return classifier.classify(branchName);
     }
 }
@@ -1,5 +1,8 @@
 package com.e_gineering.maven.gitflowhelper;
 
+import com.e_gineering.maven.gitflowhelper.properties.PropertySetCache;
+import com.e_gineering.maven.gitflowhelper.properties.PropertySnapshot;
+import com.e_gineering.maven.gitflowhelper.properties.PropertyTemplate;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -7,9 +10,8 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.Enumeration;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -163,27 +165,23 @@ public class SetPropertiesMojo extends AbstractGitflowBranchMojo {
             }
         }
 
-        setProperties(toInject);
+        // Resolve the inline and loaded properties as one set, so that either can refer to the other.
+        Properties toSet = new Properties();
+        if (toInject != null) {
+            toSet.putAll(toInject);
+        }
 
         if (toLoad != null) {
-            toInject = new Properties();
-            FileInputStream fis = null;
             try {
                 getLog().info("Loading properties from: " + toLoad.getCanonicalPath());
-                fis = new FileInputStream(toLoad);
-                toInject.load(fis);
+                toSet.putAll(PropertySetCache.forSession(session).load(toLoad));
             } catch (IOException ioe) {
                 getLog().error("Could not load from : " + toLoad.getAbsolutePath(), ioe);
-            } finally {
-                if (fis != null) {
-                    try {
-                        fis.close();
-                    } catch (IOException ioe) {
-                    }
-                    fis = null;
-                }
             }
-            setProperties(toInject);
+        }
+
+        if (toInject != null || toLoad != null) {
+            setProperties(toSet);
         }
     }
 
@@ -193,24 +191,21 @@ public class SetPropertiesMojo extends AbstractGitflowBranchMojo {
         }
         getLog().info("Setting " + toInject.size() + " properties...");
 
-        for (Enumeration<?> propertyNames = toInject.propertyNames(); propertyNames.hasMoreElements(); ) {
-            String propertyName = propertyNames.nextElement().toString();
-
-            String key = keyPrefix + resolveExpression(propertyName);
-            String value = resolveExpression(toInject.getProperty(propertyName));
+        // Values are resolved as a set, in the order they refer to each other, then set all at once. Modules in which
+        // the properties the set refers to are the same share the result.
+        Map<String, String> resolved = PropertySetCache.forSession(session).resolve(toInject, keyPrefix, expression -> PropertyTemplate.forSession(session, expression),
+                getPropertySnapshot());
 
-            getLog().debug("  " + key + " = " + value);
+        for (Map.Entry<String, String> property : resolved.entrySet()) {
+            getLog().debug("  " + property.getKey() + " = " + property.getValue());
+        }
 
-            Object replaced;
-            if ("system".equalsIgnoreCase(scope)) {
-                replaced = System.setProperty(key, value);
-            } else {
-                replaced = project.getProperties().setProperty(key, value);
-            }
+        Properties target = "system".equalsIgnoreCase(scope) ? System.getProperties() : project.getProperties();
+        Map<String, String> replaced = PropertySnapshot.publish(target, resolved);
+        invalidatePropertySnapshot();
 
-            if (replaced != null) {
-                getLog().debug("   replaced previous value : " + replaced);
-            }
+        for (Map.Entry<String, String> previous : replaced.entrySet()) {
+            getLog().debug("   replaced previous value of " + previous.getKey() + " : " + previous.getValue());
         }
     }
 }
@@ -16,7 +16,7 @@ import org.apache.maven.scm.repository.ScmRepository;
 /**
  * Invokes configures the builds SCM settings based on environment variables from a CI Server, and does an scm:tag for builds from Master.
  */
-@Mojo(name = "tag-master", defaultPhase = LifecyclePhase.INSTALL)
+@Mojo(name = "tag-master", defaultPhase = LifecyclePhase.INSTALL, threadSafe = true)
 public class TagMasterMojo extends AbstractGitflowBranchMojo {
 
     // @Parameter tag causes property resolution to fail for patterns containing ${env.}. Default value is resolved in execute()
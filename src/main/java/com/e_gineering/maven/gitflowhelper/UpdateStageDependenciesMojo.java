@@ -14,6 +14,7 @@ import org.apache.maven.project.DependencyResolutionResult;
 import org.apache.maven.project.ProjectDependenciesResolver;
 import org.eclipse.aether.DefaultRepositoryCache;
 import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.SessionData;
 import org.eclipse.aether.graph.Dependency;
 import org.eclipse.aether.repository.LocalArtifactRequest;
 import org.eclipse.aether.repository.LocalArtifactResult;
@@ -25,13 +26,17 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Forces a re-resolution of all dependency artifacts which were resolved from the 'stage' remote repository.
  */
-@Mojo(name = "update-stage-dependencies", defaultPhase = LifecyclePhase.INITIALIZE)
+@Mojo(name = "update-stage-dependencies", defaultPhase = LifecyclePhase.INITIALIZE, threadSafe = true)
 public class UpdateStageDependenciesMojo extends AbstractGitflowBasedRepositoryMojo {
 
+    private static final Object PURGED_KEY = UpdateStageDependenciesMojo.class.getName() + ".purged";
+
     @Component
     ProjectDependenciesResolver dependenciesResolver;
 
@@ -63,18 +68,15 @@ public class UpdateStageDependenciesMojo extends AbstractGitflowBasedRepositoryM
 
                     // If the result has a file... and the getRepository() matched the stage repo id...
                     if (localResult.getFile() != null && localResult.getRepository() != null) {
-                        getLog().info("Purging: " + dependency + " from remote repository: " + localResult.getRepository() + ".");
                         File deleteTarget = new File(localRepositoryManager.getRepository().getBasedir(), localRepositoryManager.getPathForLocalArtifact(dependency.getArtifact()));
 
-                        if (deleteTarget.isDirectory()) {
-                            try {
-                                FileUtils.deleteDirectory(deleteTarget);
-                            } catch (IOException ioe) {
-                                getLog().warn("Failed to purge stage artifact from local repository: " + deleteTarget, ioe);
-                            }
-                        } else if (!deleteTarget.delete()) {
-                            getLog().warn("Failed to purge stage artifact from local repository: " + deleteTarget);
-                        }
+                        // Modules sharing a stage dependency purge it once per session. Any module built in parallel
+                        // waits here until the purge is complete, rather than resolving a file which is being deleted.
+                        purgedInSession().computeIfAbsent(deleteTarget, target -> {
+                            getLog().info("Purging: " + dependency + " from remote repository: " + localResult.getRepository() + ".");
+                            purge(target);
+                            return Boolean.TRUE;
+                        });
                         itemsPurged = true;
                     }
                 }
@@ -94,4 +96,32 @@ public class UpdateStageDependenciesMojo extends AbstractGitflowBasedRepositoryM
             }
         }
     }
+
+    private void purge(final File deleteTarget) {
+        if (deleteTarget.isDirectory()) {
+            try {
+                FileUtils.deleteDirectory(deleteTarget);
+            } catch (IOException ioe) {
+                getLog().warn("Failed to purge stage artifact from local repository: " + deleteTarget, ioe);
+            }
+        } else if (!deleteTarget.delete()) {
+            getLog().warn("Failed to purge stage artifact from local repository: " + deleteTarget);
+        }
+    }
+
+    /**
+     * @return The local repository files purged so far in this session.
+     */
+    @SuppressWarnings("unchecked")
+    private ConcurrentMap<File, Boolean> purgedInSession() {
+        SessionData data = session.getRepositorySession().getData();
+
+        Object purged = data.get(PURGED_KEY);
+        while (purged == null) {
+            data.set(PURGED_KEY, null, new ConcurrentHashMap<File, Boolean>());
+            purged = data.get(PURGED_KEY);
+        }
+
+        return (ConcurrentMap<File, Boolean>) purged;
+    }
 }
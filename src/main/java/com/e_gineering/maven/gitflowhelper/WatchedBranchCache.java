@@ -0,0 +1,248 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import com.e_gineering.maven.gitflowhelper.git.GitDirectory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * A JVM wide cache of the branch names resolved from git, for build daemons (mvnd) where the JVM outlives the build.
+ * <p/>
+ * Each git working copy is watched for changes to <code>HEAD</code>, <code>packed-refs</code> and the local and remote
+ * branch refs. Any change invalidates every name cached for that working copy, so a warm build can use the cached name
+ * without reading the repository. Platforms where the {@link WatchService} polls (rather than being notified by the
+ * OS) could serve a stale name for seconds after a checkout, so the cache isn't used on those.
+ */
+class WatchedBranchCache implements Closeable {
+
+    private static final Object LOCK = new Object();
+    private static WatchedBranchCache daemonCache;
+    private static boolean daemonCacheUnavailable;
+
+    private final WatchService watchService;
+    private final ConcurrentMap<Path, WatchedRoot> watchedDirectories = new ConcurrentHashMap<>();
+    private final ConcurrentMap<File, WatchedRoot> roots = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CachedName> names = new ConcurrentHashMap<>();
+
+    WatchedBranchCache() throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        Thread watcher = new Thread(this::processEvents, "gitflow-helper-ref-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Returns the cache shared by every build run within a build daemon.
+     *
+     * @return The cache, or null if this JVM isn't a build daemon, or changes can't be watched efficiently.
+     */
+    static WatchedBranchCache forDaemon() {
+        if (System.getProperty("mvnd.home") == null) {
+            return null;
+        }
+        synchronized (LOCK) {
+            if (daemonCache == null && !daemonCacheUnavailable) {
+                try {
+                    WatchedBranchCache cache = new WatchedBranchCache();
+                    if (cache.watchService.getClass().getName().endsWith("PollingWatchService")) {
+                        cache.close();
+                        daemonCacheUnavailable = true;
+                    } else {
+                        daemonCache = cache;
+                    }
+                } catch (IOException | UnsupportedOperationException e) {
+                    daemonCacheUnavailable = true;
+                }
+            }
+            return daemonCache;
+        }
+    }
+
+    /**
+     * @param basedir      The project basedir the name was resolved for
+     * @param patternsHash A hash of the branch patterns in use
+     * @return The cached branch name, or null if there is none, or the repository has changed since it was cached.
+     */
+    String get(final File basedir, final String patternsHash) {
+        CachedName cached = names.get(basedir.getAbsolutePath() + '\n' + patternsHash);
+        return cached != null && cached.generation == cached.root.generation.get() ? cached.name : null;
+    }
+
+    /**
+     * Starts watching the given repository, if it isn't watched already. Must be called before the repository is read
+     * to resolve the name to {@link #put(File, String, Snapshot, String)}, so that no change goes unnoticed.
+     *
+     * @param gitDirectory The repository about to be read
+     * @return A marker for the current state of the repository.
+     * @throws IOException if the repository can't be watched.
+     */
+    Snapshot watch(final GitDirectory gitDirectory) throws IOException {
+        WatchedRoot root = roots.get(gitDirectory.getWorkTree());
+        if (root == null) {
+            synchronized (roots) {
+                root = roots.get(gitDirectory.getWorkTree());
+                if (root == null) {
+                    root = new WatchedRoot(gitDirectory);
+                    register(gitDirectory.getGitDir().toPath(), root);
+                    register(gitDirectory.getCommonDir().toPath(), root);
+                    register(root.refs, root);
+                    registerAll(root.refs.resolve("heads"), root);
+                    registerAll(root.refs.resolve("remotes"), root);
+                    roots.put(gitDirectory.getWorkTree(), root);
+                }
+            }
+        }
+        return new Snapshot(root, root.generation.get());
+    }
+
+    /**
+     * Caches a branch name. It's discarded at once if the repository has changed since the snapshot was taken.
+     *
+     * @param basedir      The project basedir the name was resolved for
+     * @param patternsHash A hash of the branch patterns in use
+     * @param snapshot     Taken before the repository was read
+     * @param branchName   The resolved name
+     */
+    void put(final File basedir, final String patternsHash, final Snapshot snapshot, final String branchName) {
+        names.put(basedir.getAbsolutePath() + '\n' + patternsHash, new CachedName(snapshot.root, snapshot.generation, branchName));
+    }
+
+    private void registerAll(final Path directory, final WatchedRoot root) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> directories = Files.walk(directory)) {
+            for (Path child : (Iterable<Path>) directories.filter(Files::isDirectory)::iterator) {
+                register(child, root);
+            }
+        }
+    }
+
+    private void register(final Path directory, final WatchedRoot root) throws IOException {
+        if (Files.isDirectory(directory)) {
+            // Re-registering returns the existing key, and hands the directory over to the current root.
+            watchedDirectories.put(directory, root);
+            directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        }
+    }
+
+    private void processEvents() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = (Path) key.watchable();
+                WatchedRoot root = watchedDirectories.get(directory);
+
+                if (root != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            root.generation.incrementAndGet();
+                            continue;
+                        }
+
+                        Path child = directory.resolve((Path) event.context());
+                        if (root.isRelevant(directory, child)) {
+                            // Watch new directories before invalidating, so that no change made after a resolution
+                            // which saw the invalidation goes unnoticed.
+                            if (event.kind() == ENTRY_CREATE && !directory.equals(root.gitDir) && !directory.equals(root.commonDir)) {
+                                try {
+                                    registerAll(child, root);
+                                } catch (IOException ioe) {
+                                    // We may miss changes beneath it, so start over with this root.
+                                    roots.remove(root.workTree, root);
+                                }
+                            }
+                            root.generation.incrementAndGet();
+                        }
+                    }
+                }
+
+                if (!key.reset()) {
+                    watchedDirectories.remove(directory);
+                    if (root != null) {
+                        root.generation.incrementAndGet();
+                        roots.remove(root.workTree, root);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed.
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * The state of a watched repository at the time it was about to be read.
+     */
+    static class Snapshot {
+        private final WatchedRoot root;
+        private final long generation;
+
+        private Snapshot(final WatchedRoot root, final long generation) {
+            this.root = root;
+            this.generation = generation;
+        }
+    }
+
+    private static class WatchedRoot {
+        private final File workTree;
+        private final Path gitDir;
+        private final Path commonDir;
+        private final Path refs;
+        /* Incremented whenever anything we depend upon changes. */
+        private final AtomicLong generation = new AtomicLong();
+
+        private WatchedRoot(final GitDirectory gitDirectory) {
+            this.workTree = gitDirectory.getWorkTree();
+            this.gitDir = gitDirectory.getGitDir().toPath();
+            this.commonDir = gitDirectory.getCommonDir().toPath();
+            this.refs = commonDir.resolve("refs");
+        }
+
+        private boolean isRelevant(final Path directory, final Path child) {
+            String name = child.getFileName().toString();
+            if (directory.equals(refs)) {
+                return name.equals("heads") || name.equals("remotes");
+            } else if (directory.equals(gitDir) || directory.equals(commonDir)) {
+                // Skip the index, logs, FETCH_HEAD & co.
+                return name.equals("HEAD") || name.equals("packed-refs") || name.equals("refs");
+            }
+            // A loose branch ref.
+            return true;
+        }
+    }
+
+    private static class CachedName {
+        private final WatchedRoot root;
+        private final long generation;
+        private final String name;
+
+        private CachedName(final WatchedRoot root, final long generation, final String name) {
+            this.root = root;
+            this.generation = generation;
+            this.name = name;
+        }
+    }
+}
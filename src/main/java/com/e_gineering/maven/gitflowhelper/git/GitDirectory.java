@@ -0,0 +1,253 @@
+package com.e_gineering.maven.gitflowhelper.git;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads branch information straight from a <code>.git</code> directory, without forking a git process.
+ * <p/>
+ * Understands <code>HEAD</code>, loose refs and <code>packed-refs</code>, as well as linked worktrees and submodules
+ * (<code>.git</code> files containing a <code>gitdir:</code> pointer) and the <code>commondir</code> they share.
+ * Anything else (reftable ref storage, a <code>GIT_DIR</code> override, malformed files) results in a
+ * {@link GitReadException}, so callers can fall back to the git executable.
+ */
+public class GitDirectory {
+
+    private static final String DOT_GIT = ".git";
+    private static final String GITDIR_PREFIX = "gitdir:";
+    private static final String SYMREF_PREFIX = "ref:";
+    private static final String HEADS_PREFIX = "refs/heads/";
+    private static final String REMOTES_PREFIX = "refs/remotes/";
+    private static final int MAX_SYMREF_DEPTH = 5;
+
+    private static final Pattern OBJECT_ID = Pattern.compile("[0-9a-f]{40}");
+
+    /* Same naming rules `git show-ref` output was historically matched against. */
+    static final Pattern BRANCH_REF = Pattern.compile("(?:refs/heads/|refs/remotes/[\\w-.]+/)(?<branch>[\\w-/.]+)");
+
+    private final File workTree;
+    private final File gitDir;
+    private final File commonDir;
+
+    GitDirectory(final File workTree, final File gitDir, final File commonDir) {
+        this.workTree = workTree;
+        this.gitDir = gitDir;
+        this.commonDir = commonDir;
+    }
+
+    /**
+     * Finds the git repository containing the given directory, the same way git itself would.
+     *
+     * @param directory The directory to start searching from
+     * @return The repository, or null if the directory isn't within a git working copy.
+     * @throws GitReadException if the repository layout can't be read in-process.
+     * @throws IOException      if the repository can't be read at all.
+     */
+    public static GitDirectory locate(final File directory) throws IOException {
+        if (System.getenv("GIT_DIR") != null) {
+            throw new GitReadException("GIT_DIR is set in the environment.");
+        }
+
+        for (File candidate = directory == null ? null : directory.getAbsoluteFile(); candidate != null; candidate = candidate.getParentFile()) {
+            File dotGit = new File(candidate, DOT_GIT);
+            if (dotGit.isDirectory()) {
+                return open(candidate, dotGit);
+            } else if (dotGit.isFile()) {
+                String pointer = readFirstLine(dotGit);
+                if (!pointer.startsWith(GITDIR_PREFIX)) {
+                    throw new GitReadException("Unrecognized .git file: " + dotGit);
+                }
+                return open(candidate, resolve(candidate, pointer.substring(GITDIR_PREFIX.length()).trim()));
+            }
+        }
+        return null;
+    }
+
+    private static GitDirectory open(final File workTree, final File gitDir) throws IOException {
+        if (!new File(gitDir, "HEAD").isFile()) {
+            throw new GitReadException("Not a git directory: " + gitDir);
+        }
+
+        File commonDir = gitDir;
+        File commonDirPointer = new File(gitDir, "commondir");
+        if (commonDirPointer.isFile()) {
+            commonDir = resolve(gitDir, readFirstLine(commonDirPointer));
+        }
+
+        if (new File(commonDir, "reftable").isDirectory()) {
+            throw new GitReadException("The reftable ref storage format is not supported.");
+        }
+
+        return new GitDirectory(workTree, gitDir, commonDir);
+    }
+
+    /**
+     * @return The top level directory of the working copy.
+     */
+    public File getWorkTree() {
+        return workTree;
+    }
+
+    /**
+     * @return The (possibly per-worktree) git directory holding HEAD.
+     */
+    public File getGitDir() {
+        return gitDir;
+    }
+
+    /**
+     * @return The git directory holding the refs and objects shared by all worktrees.
+     */
+    public File getCommonDir() {
+        return commonDir;
+    }
+
+    /**
+     * @return The raw content of HEAD.
+     */
+    public String readHead() throws IOException {
+        return readFirstLine(new File(gitDir, "HEAD"));
+    }
+
+    /**
+     * Equivalent to <code>git symbolic-ref HEAD</code>, with the <code>refs/heads/</code> prefix removed.
+     *
+     * @return The name of the checked out branch, or null if HEAD is detached.
+     */
+    public String getCurrentBranch() throws IOException {
+        return branchOf(readHead());
+    }
+
+    /**
+     * @param head The raw content of HEAD
+     * @return The name of the branch it refers to, or null if it's detached.
+     */
+    static String branchOf(final String head) throws GitReadException {
+        if (head.startsWith(SYMREF_PREFIX)) {
+            String ref = head.substring(SYMREF_PREFIX.length()).trim();
+            if (!ref.startsWith(HEADS_PREFIX)) {
+                throw new GitReadException("HEAD refers to something other than a branch: " + ref);
+            }
+            return ref.substring(HEADS_PREFIX.length());
+        } else if (OBJECT_ID.matcher(head).matches()) {
+            return null;
+        }
+        throw new GitReadException("Unrecognized HEAD: " + head);
+    }
+
+    /**
+     * Equivalent to <code>git rev-parse HEAD</code>.
+     *
+     * @return The commit id HEAD points to.
+     */
+    public String resolveHead() throws IOException {
+        return resolveRef("HEAD", 0);
+    }
+
+    /**
+     * Equivalent to filtering <code>git show-ref</code> for local and remote branches pointing to the given commit.
+     *
+     * @param sha1 A commit id
+     * @return The names of the branches (remote names removed) pointing at that commit.
+     */
+    public Set<String> branchesFor(final String sha1) throws IOException {
+        Map<String, String> looseRefs = new HashMap<>();
+        collectLooseRefs(new File(commonDir, HEADS_PREFIX), HEADS_PREFIX, looseRefs);
+        collectLooseRefs(new File(commonDir, REMOTES_PREFIX), REMOTES_PREFIX, looseRefs);
+
+        Set<String> branches = new HashSet<>();
+        PackedRefs packedRefs = packedRefs();
+        if (packedRefs != null) {
+            for (String ref : packedRefs.refsFor(sha1)) {
+                // Loose refs take precedence over packed ones.
+                if (!looseRefs.containsKey(ref)) {
+                    addBranch(ref, branches);
+                }
+            }
+        }
+        for (Map.Entry<String, String> ref : looseRefs.entrySet()) {
+            if (sha1.equals(resolve(ref.getValue(), 0))) {
+                addBranch(ref.getKey(), branches);
+            }
+        }
+        return branches;
+    }
+
+    private static void addBranch(final String ref, final Set<String> branches) {
+        Matcher m = BRANCH_REF.matcher(ref);
+        if (m.matches()) {
+            branches.add(m.group("branch"));
+        }
+    }
+
+    private String resolveRef(final String name, final int depth) throws IOException {
+        if (depth > MAX_SYMREF_DEPTH) {
+            throw new GitReadException("Too many levels of symbolic refs at: " + name);
+        }
+
+        File loose = new File(isPerWorktree(name) ? gitDir : commonDir, name);
+        if (loose.isFile()) {
+            return resolve(readFirstLine(loose), depth);
+        }
+
+        PackedRefs packedRefs = packedRefs();
+        String packed = packedRefs == null ? null : packedRefs.get(name);
+        if (packed == null) {
+            throw new GitReadException("Unable to resolve ref: " + name);
+        }
+        return packed;
+    }
+
+    private String resolve(final String refContent, final int depth) throws IOException {
+        if (refContent.startsWith(SYMREF_PREFIX)) {
+            return resolveRef(refContent.substring(SYMREF_PREFIX.length()).trim(), depth + 1);
+        } else if (OBJECT_ID.matcher(refContent).matches()) {
+            return refContent;
+        }
+        throw new GitReadException("Unrecognized ref content: " + refContent);
+    }
+
+    private static boolean isPerWorktree(final String name) {
+        return !name.startsWith("refs/") || name.startsWith("refs/bisect/") || name.startsWith("refs/worktree/") || name.startsWith("refs/rewritten/");
+    }
+
+    private PackedRefs packedRefs() throws IOException {
+        return PackedRefs.forFile(new File(commonDir, "packed-refs"));
+    }
+
+    private static void collectLooseRefs(final File directory, final String prefix, final Map<String, String> refs) throws IOException {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                collectLooseRefs(child, prefix + child.getName() + "/", refs);
+            } else if (!child.getName().endsWith(".lock")) {
+                refs.put(prefix + child.getName(), readFirstLine(child));
+            }
+        }
+    }
+
+    private static File resolve(final File base, final String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(base, path);
+    }
+
+    private static String readFirstLine(final File file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), UTF_8)) {
+            String line = reader.readLine();
+            return line == null ? "" : line.trim();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.e_gineering.maven.gitflowhelper.git;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Answers git queries for a working copy with as few git processes as possible.
+ * <p/>
+ * Revisions are resolved by a long-lived <code>git cat-file --batch-check</code> co-process, started on first use.
+ * All refs (and which of them is checked out) are listed by a single <code>git for-each-ref</code>, the result of
+ * which is kept for the life of this object. {@link #close()} stops the co-process.
+ * <p/>
+ * Every exchange with git must complete within the timeout. Otherwise the process is killed, and this and any later
+ * query fails at once with an IOException, bounding the time a build can spend waiting on git.
+ */
+public class GitProcess implements Closeable {
+
+    private static final String HEADS_PREFIX = "refs/heads/";
+
+    /* %(HEAD) is '*' for the checked out branch, ' ' for every other ref. */
+    private static final Pattern FOR_EACH_REF_LINE = Pattern.compile("(?<head>[* ])(?<sha1>[0-9a-f]{40}) (?<ref>\\S+)");
+    private static final Pattern BATCH_CHECK_LINE = Pattern.compile("(?<sha1>[0-9a-f]{40}) \\S+ \\d+");
+
+    /* Reads git's output, so that the caller can stop waiting even if a child of git holds the pipe open. */
+    private static final ExecutorService IO = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "gitflow-helper-git-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File workingDirectory;
+    private final String executable;
+    private final long timeoutMillis;
+    private String timedOut;
+
+    private Process catFile;
+    private BufferedWriter catFileIn;
+    private BufferedReader catFileOut;
+
+    private List<String[]> refs;
+
+    /**
+     * @param workingDirectory The directory to run git in
+     * @param timeoutMillis    The longest to wait for git to answer a query
+     */
+    public GitProcess(final File workingDirectory, final long timeoutMillis) {
+        this(workingDirectory, timeoutMillis, "git");
+    }
+
+    GitProcess(final File workingDirectory, final long timeoutMillis, final String executable) {
+        this.workingDirectory = workingDirectory;
+        this.timeoutMillis = timeoutMillis;
+        this.executable = executable;
+    }
+
+    /**
+     * Equivalent to <code>git rev-parse --verify revision^{object}</code>.
+     *
+     * @param revision The revision to resolve, ie: <code>HEAD</code>
+     * @return The object id of the revision.
+     * @throws IOException if git can't be run, or the revision doesn't exist.
+     */
+    public synchronized String revParse(final String revision) throws IOException {
+        if (catFile == null) {
+            // Its replies are read line by line, so a warning on stderr mustn't be mistaken for one.
+            catFile = start(false, "cat-file", "--batch-check");
+            Process process = catFile;
+            IO.submit(() -> drain(process));
+            catFileIn = new BufferedWriter(new OutputStreamWriter(catFile.getOutputStream(), UTF_8));
+            catFileOut = new BufferedReader(new InputStreamReader(catFile.getInputStream(), UTF_8));
+        }
+
+        BufferedWriter in = catFileIn;
+        BufferedReader out = catFileOut;
+        String response;
+        try {
+            response = await(catFile, "cat-file", () -> {
+                in.write(revision);
+                in.newLine();
+                in.flush();
+                return out.readLine();
+            });
+        } catch (IOException ioe) {
+            close();
+            throw ioe;
+        }
+
+        if (response == null) {
+            close();
+            throw new IOException("git cat-file exited unexpectedly in " + workingDirectory);
+        }
+
+        Matcher m = BATCH_CHECK_LINE.matcher(response);
+        if (!m.matches()) {
+            throw new IOException("Unable to resolve " + revision + ": " + response);
+        }
+        return m.group("sha1");
+    }
+
+    /**
+     * Equivalent to <code>git symbolic-ref HEAD</code>, with the <code>refs/heads/</code> prefix removed.
+     *
+     * @return The name of the checked out branch, or null if HEAD is detached.
+     */
+    public synchronized String getCurrentBranch() throws IOException {
+        for (String[] ref : refs()) {
+            if ("*".equals(ref[0]) && ref[2].startsWith(HEADS_PREFIX)) {
+                return ref[2].substring(HEADS_PREFIX.length());
+            }
+        }
+        // A branch without a commit yet isn't listed, so HEAD may be on one nonetheless.
+        return symbolicRef();
+    }
+
+    /**
+     * @return The branch HEAD refers to, or null if HEAD is detached.
+     */
+    private String symbolicRef() throws IOException {
+        Process symbolicRef = start(true, "symbolic-ref", "-q", "HEAD");
+        symbolicRef.getOutputStream().close();
+
+        StringBuilder output = new StringBuilder();
+        int exitCode = await(symbolicRef, "symbolic-ref", () -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(symbolicRef.getInputStream(), UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    output.append(line.trim());
+                }
+            }
+            return symbolicRef.waitFor();
+        });
+        if (exitCode == 1) {
+            // Detached.
+            return null;
+        }
+        String ref = output.toString();
+        if (exitCode != 0 || !ref.startsWith(HEADS_PREFIX)) {
+            throw new IOException("git symbolic-ref failed with exit code " + exitCode + ": " + ref);
+        }
+        return ref.substring(HEADS_PREFIX.length());
+    }
+
+    /**
+     * Equivalent to filtering <code>git show-ref</code> for local and remote branches pointing to the given commit.
+     *
+     * @param sha1 A commit id
+     * @return The names of the branches (remote names removed) pointing at that commit.
+     */
+    public synchronized Set<String> branchesFor(final String sha1) throws IOException {
+        Set<String> branches = new HashSet<>();
+        for (String[] ref : refs()) {
+            if (ref[1].equals(sha1)) {
+                Matcher m = GitDirectory.BRANCH_REF.matcher(ref[2]);
+                if (m.matches()) {
+                    branches.add(m.group("branch"));
+                }
+            }
+        }
+        return branches;
+    }
+
+    private List<String[]> refs() throws IOException {
+        if (refs == null) {
+            Process forEachRef = start(true, "for-each-ref", "--format=%(HEAD)%(objectname) %(refname)");
+            forEachRef.getOutputStream().close();
+
+            List<String[]> lines = new ArrayList<>();
+            StringBuilder unrecognized = new StringBuilder();
+            int exitCode = await(forEachRef, "for-each-ref", () -> {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(forEachRef.getInputStream(), UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        Matcher m = FOR_EACH_REF_LINE.matcher(line);
+                        if (m.matches()) {
+                            lines.add(new String[]{m.group("head"), m.group("sha1"), m.group("ref")});
+                        } else {
+                            // Most likely a warning on stderr, which we've merged with stdout.
+                            unrecognized.append(line).append('\n');
+                        }
+                    }
+                }
+                return forEachRef.waitFor();
+            });
+            if (exitCode != 0) {
+                throw new IOException("git for-each-ref failed with exit code " + exitCode + ": " + unrecognized);
+            }
+            refs = lines;
+        }
+        return refs;
+    }
+
+    /**
+     * @param mergeErrors true to read stderr along with stdout, otherwise it's left to the caller to drain.
+     */
+    private Process start(final boolean mergeErrors, final String... arguments) throws IOException {
+        if (timedOut != null) {
+            throw new IOException(timedOut);
+        }
+
+        List<String> command = new ArrayList<>();
+        command.add(executable);
+        command.addAll(Arrays.asList(arguments));
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(workingDirectory)
+                .redirectErrorStream(mergeErrors);
+        // Never wait on a prompt nobody will answer.
+        builder.environment().put("GIT_TERMINAL_PROMPT", "0");
+        return builder.start();
+    }
+
+    /**
+     * Discards a process's stderr until it exits, so that it never blocks writing to a full pipe.
+     */
+    private static Void drain(final Process process) throws IOException {
+        try (InputStream err = process.getErrorStream()) {
+            byte[] buffer = new byte[4096];
+            while (err.read(buffer) >= 0) {
+                // Discarded.
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs an exchange with a git process, waiting no longer than the timeout for it to complete.
+     */
+    private <T> T await(final Process process, final String command, final Callable<T> exchange) throws IOException {
+        if (timedOut != null) {
+            throw new IOException(timedOut);
+        }
+
+        Future<T> result = IO.submit(exchange);
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException te) {
+            result.cancel(true);
+            process.destroyForcibly();
+            timedOut = "git " + command + " did not complete within " + timeoutMillis + "ms in " + workingDirectory + ", and was killed.";
+            throw new IOException(timedOut);
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof IOException) {
+                throw (IOException) ee.getCause();
+            }
+            throw new IOException("git " + command + " failed in " + workingDirectory, ee.getCause());
+        } catch (InterruptedException ie) {
+            result.cancel(true);
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for git", ie);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (catFile != null) {
+            // cat-file exits once its input is closed. After a timeout, a stuck write may still hold the writer's lock.
+            if (timedOut == null) {
+                try {
+                    catFileIn.close();
+                } catch (IOException ignored) {
+                }
+            }
+            catFile.destroy();
+            catFile = null;
+            catFileIn = null;
+            catFileOut = null;
+        }
+    }
+}
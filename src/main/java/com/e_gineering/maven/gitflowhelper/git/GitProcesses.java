@@ -0,0 +1,62 @@
+package com.e_gineering.maven.gitflowhelper.git;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The {@link GitProcess}es started during a build, one per working directory.
+ * <p/>
+ * The processes are stopped by {@link #close()}, or when the JVM exits if nothing closes them sooner (ie: the plugin's
+ * mojos are used without the build extension, which closes them when the session ends).
+ */
+public class GitProcesses implements Closeable {
+
+    private final ConcurrentMap<File, GitProcess> processes = new ConcurrentHashMap<>();
+
+    private final Thread shutdownHook = new Thread(this::stopProcesses, "gitflow-helper-git-shutdown");
+
+    private final AtomicBoolean hooked = new AtomicBoolean();
+
+    /**
+     * @param workingDirectory The directory git should run in
+     * @param timeoutMillis    The longest to wait for git to answer a query, if the process is started by this call.
+     * @return The (shared) git process for that directory.
+     */
+    public GitProcess forDirectory(final File workingDirectory, final long timeoutMillis) {
+        return processes.computeIfAbsent(workingDirectory.getAbsoluteFile(), directory -> {
+            if (hooked.compareAndSet(false, true)) {
+                try {
+                    Runtime.getRuntime().addShutdownHook(shutdownHook);
+                } catch (IllegalStateException ise) {
+                    // The JVM is already exiting.
+                }
+            }
+            return new GitProcess(directory, timeoutMillis);
+        });
+    }
+
+    /**
+     * Stops every git process.
+     */
+    @Override
+    public void close() {
+        if (hooked.compareAndSet(true, false)) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ise) {
+                // The JVM is already exiting, and the hook is stopping the processes too.
+            }
+        }
+        stopProcesses();
+    }
+
+    private void stopProcesses() {
+        for (GitProcess process : processes.values()) {
+            process.close();
+        }
+        processes.clear();
+    }
+}
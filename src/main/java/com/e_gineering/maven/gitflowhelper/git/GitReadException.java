@@ -0,0 +1,16 @@
+package com.e_gineering.maven.gitflowhelper.git;
+
+import java.io.IOException;
+
+/**
+ * Signals that the on-disk git repository contains something the in-process reader does not understand, and that the
+ * git executable should be consulted instead.
+ */
+public class GitReadException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public GitReadException(final String message) {
+        super(message);
+    }
+}
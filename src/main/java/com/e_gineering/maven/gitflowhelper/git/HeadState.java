@@ -0,0 +1,71 @@
+package com.e_gineering.maven.gitflowhelper.git;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * What HEAD refers to: either the checked out branch, or (for a detached HEAD) the commit and the branches pointing at it.
+ * <p/>
+ * Reading this doesn't depend upon any branch pattern configuration, so it can be done before the project is read.
+ */
+public class HeadState {
+
+    private final String head;
+    private final String branch;
+    private final String sha1;
+    private final Set<String> branches;
+
+    private HeadState(final String head, final String branch, final String sha1, final Set<String> branches) {
+        this.head = head;
+        this.branch = branch;
+        this.sha1 = sha1;
+        this.branches = branches;
+    }
+
+    /**
+     * Reads the state of HEAD in the given repository.
+     *
+     * @param gitDirectory The repository
+     * @return The state of HEAD
+     * @throws GitReadException if the repository can't be read in-process.
+     */
+    public static HeadState read(final GitDirectory gitDirectory) throws IOException {
+        String head = gitDirectory.readHead();
+        String branch = GitDirectory.branchOf(head);
+        if (branch != null) {
+            return new HeadState(head, branch, null, Collections.emptySet());
+        }
+
+        // A detached HEAD is the commit id itself.
+        return new HeadState(head, null, head, Collections.unmodifiableSet(gitDirectory.branchesFor(head)));
+    }
+
+    /**
+     * @return The raw content of HEAD this state was read from.
+     */
+    public String getHead() {
+        return head;
+    }
+
+    /**
+     * @return The checked out branch, or null if HEAD is detached.
+     */
+    public String getBranch() {
+        return branch;
+    }
+
+    /**
+     * @return The commit a detached HEAD points at, or null if a branch is checked out.
+     */
+    public String getSha1() {
+        return sha1;
+    }
+
+    /**
+     * @return The branches pointing at the commit of a detached HEAD.
+     */
+    public Set<String> getBranches() {
+        return branches;
+    }
+}
@@ -0,0 +1,239 @@
+package com.e_gineering.maven.gitflowhelper.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An index over a <code>packed-refs</code> file, answering which branches point at a given commit.
+ * <p/>
+ * The file is memory mapped, and an open addressing table from the leading bytes of each branch's object id to the
+ * offset of its line is built once. Lookups compare the raw object id bytes in the mapped file, and only decode the ref
+ * names of matching lines. Indexes are cached for the life of the JVM, and rebuilt whenever the file's size,
+ * modification time or identity changes.
+ */
+class PackedRefs {
+
+    private static final ConcurrentMap<Path, PackedRefs> INDEXES = new ConcurrentHashMap<>();
+
+    /* Windows won't let git replace a file which is mapped, so we read those into the heap instead. */
+    private static final boolean MAP_FILES = !System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+
+    private static final int ID_LENGTH = 40;
+    private static final int KEY_LENGTH = 16;
+    private static final byte[] HEADS = "refs/heads/".getBytes(UTF_8);
+    private static final byte[] REMOTES = "refs/remotes/".getBytes(UTF_8);
+
+    private final Object fingerprint;
+    private final ByteBuffer buffer;
+    private final long[] keys;
+    private final int[] offsets;
+
+    private PackedRefs(final Object fingerprint, final ByteBuffer buffer, final long[] keys, final int[] offsets) {
+        this.fingerprint = fingerprint;
+        this.buffer = buffer;
+        this.keys = keys;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Returns the (possibly cached) index for the given packed-refs file.
+     *
+     * @param file The packed-refs file
+     * @return The index, or null if the file doesn't exist.
+     * @throws GitReadException if the file isn't in a format we understand
+     */
+    static PackedRefs forFile(final File file) throws IOException {
+        Path path = file.toPath().toAbsolutePath();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException nsfe) {
+            INDEXES.remove(path);
+            return null;
+        }
+
+        Object fingerprint = Arrays.asList(attributes.size(), attributes.lastModifiedTime(), attributes.fileKey());
+        PackedRefs cached = INDEXES.get(path);
+        if (cached != null && cached.fingerprint.equals(fingerprint)) {
+            return cached;
+        }
+
+        PackedRefs index = build(path, attributes.size(), fingerprint);
+        INDEXES.put(path, index);
+        return index;
+    }
+
+    private static PackedRefs build(final Path path, final long size, final Object fingerprint) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new GitReadException("packed-refs is too large to index: " + path);
+        }
+
+        ByteBuffer buffer;
+        if (MAP_FILES && size > 0) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+        } else {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        }
+
+        // Collect the offsets of every branch line.
+        List<Integer> branchLines = new ArrayList<>();
+        int limit = buffer.limit();
+        for (int line = 0; line < limit; line = nextLine(buffer, line)) {
+            byte first = buffer.get(line);
+            if (first == '#' || first == '^' || first == '\n') {
+                continue;
+            }
+            if (line + ID_LENGTH >= limit || buffer.get(line + ID_LENGTH) != ' ' || !isObjectId(buffer, line)) {
+                throw new GitReadException("Unrecognized packed-refs line at offset " + line + " in " + path);
+            }
+            int name = line + ID_LENGTH + 1;
+            if (startsWith(buffer, name, HEADS) || startsWith(buffer, name, REMOTES)) {
+                branchLines.add(line);
+            }
+        }
+
+        // Open addressing, linear probing. Slots are free when their offset is -1.
+        int capacity = Integer.highestOneBit(Math.max(branchLines.size(), 1) * 2) * 2;
+        long[] keys = new long[capacity];
+        int[] offsets = new int[capacity];
+        Arrays.fill(offsets, -1);
+        for (int line : branchLines) {
+            long key = keyOf(buffer, line);
+            int slot = slotOf(key, capacity);
+            while (offsets[slot] != -1) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            keys[slot] = key;
+            offsets[slot] = line;
+        }
+
+        return new PackedRefs(fingerprint, buffer, keys, offsets);
+    }
+
+    /**
+     * @param sha1 A (lower case, hex) commit id
+     * @return The names of the local and remote branch refs pointing at the commit.
+     */
+    List<String> refsFor(final String sha1) {
+        if (sha1 == null || sha1.length() != ID_LENGTH) {
+            return Collections.emptyList();
+        }
+        byte[] id = sha1.getBytes(UTF_8);
+        ByteBuffer target = ByteBuffer.wrap(id);
+        long key = keyOf(target, 0);
+
+        List<String> refs = new ArrayList<>(1);
+        int capacity = offsets.length;
+        for (int slot = slotOf(key, capacity); offsets[slot] != -1; slot = (slot + 1) & (capacity - 1)) {
+            if (keys[slot] == key && matches(offsets[slot], id)) {
+                refs.add(nameAt(offsets[slot]));
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * Looks up a single ref by name. This scans the file, and is meant for the occasional symbolic ref target.
+     *
+     * @param refName The full name of the ref
+     * @return The object id, or null if the ref isn't packed.
+     */
+    String get(final String refName) {
+        byte[] name = refName.getBytes(UTF_8);
+        int limit = buffer.limit();
+        for (int line = 0; line < limit; line = nextLine(buffer, line)) {
+            int start = line + ID_LENGTH + 1;
+            if (buffer.get(line) != '#' && buffer.get(line) != '^' && startsWith(buffer, start, name)
+                    && (start + name.length == limit || buffer.get(start + name.length) == '\n' || buffer.get(start + name.length) == '\r')) {
+                return decode(line, ID_LENGTH);
+            }
+        }
+        return null;
+    }
+
+    private boolean matches(final int offset, final byte[] id) {
+        for (int i = 0; i < ID_LENGTH; i++) {
+            if (buffer.get(offset + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String nameAt(final int line) {
+        int start = line + ID_LENGTH + 1;
+        int end = start;
+        while (end < buffer.limit() && buffer.get(end) != '\n' && buffer.get(end) != '\r') {
+            end++;
+        }
+        return decode(start, end - start);
+    }
+
+    private String decode(final int offset, final int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    private static long keyOf(final ByteBuffer buffer, final int offset) {
+        long key = 0;
+        for (int i = 0; i < KEY_LENGTH; i++) {
+            key = (key << 4) | Character.digit(buffer.get(offset + i), 16);
+        }
+        return key;
+    }
+
+    private static int slotOf(final long key, final int capacity) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (capacity - 1);
+    }
+
+    private static boolean isObjectId(final ByteBuffer buffer, final int offset) {
+        for (int i = 0; i < ID_LENGTH; i++) {
+            byte b = buffer.get(offset + i);
+            if (!((b >= '0' && b <= '9') || (b >= 'a' && b <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(final ByteBuffer buffer, final int offset, final byte[] prefix) {
+        if (offset + prefix.length > buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(offset + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int nextLine(final ByteBuffer buffer, final int offset) {
+        int limit = buffer.limit();
+        int i = offset;
+        while (i < limit && buffer.get(i) != '\n') {
+            i++;
+        }
+        return i + 1;
+    }
+}
@@ -0,0 +1,54 @@
+package com.e_gineering.maven.gitflowhelper.properties;
+
+import org.apache.maven.execution.MavenSession;
+import org.codehaus.plexus.util.Os;
+import org.eclipse.aether.SessionData;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An immutable copy of the system environment variables, taken once per session and shared by all property resolution.
+ * <p/>
+ * As with maven's own <code>${env.*}</code> handling, variable names are upper cased on Windows, where the environment
+ * is case insensitive.
+ */
+public final class EnvironmentSnapshot implements PropertyLookup {
+
+    private static final Object SESSION_KEY = EnvironmentSnapshot.class;
+
+    private final Map<String, String> variables;
+
+    EnvironmentSnapshot(final Map<String, String> environment, final boolean caseSensitive) {
+        Map<String, String> copy = new HashMap<>(environment.size() * 2);
+        for (Map.Entry<String, String> variable : environment.entrySet()) {
+            copy.put(caseSensitive ? variable.getKey() : variable.getKey().toUpperCase(Locale.ENGLISH), variable.getValue());
+        }
+        this.variables = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Returns the snapshot of the environment for the given session, taking it if this is the first request.
+     *
+     * @param session The current maven session
+     * @return The environment variables
+     */
+    public static EnvironmentSnapshot forSession(final MavenSession session) {
+        SessionData data = session.getRepositorySession().getData();
+
+        Object snapshot = data.get(SESSION_KEY);
+        while (snapshot == null) {
+            data.set(SESSION_KEY, null, new EnvironmentSnapshot(System.getenv(), !Os.isFamily(Os.FAMILY_WINDOWS)));
+            snapshot = data.get(SESSION_KEY);
+        }
+
+        return (EnvironmentSnapshot) snapshot;
+    }
+
+    @Override
+    public String get(final String key) {
+        return variables.get(key);
+    }
+}
@@ -20,36 +20,52 @@ package com.e_gineering.maven.gitflowhelper.properties;
 
 /**
  * Shamelessly cribbed from https://raw.githubusercontent.com/mojohaus/properties-maven-plugin/master/src/main/java/org/codehaus/mojo/properties/ExpansionBuffer.java
+ * <p/>
+ * The unresolved text is kept at the end of a char array, with values to expand further copied in front of it, so
+ * that each character is only scanned (and copied) once per expansion rather than once per placeholder.
  */
 public class ExpansionBuffer {
-    private final StringBuilder resolved = new StringBuilder();
+    private final StringBuilder resolved;
 
-    private String unresolved;
+    /* The unresolved text is buffer[start, buffer.length) */
+    private char[] buffer;
+
+    private int start;
+
+    /* The positions of the next placeholder, once found. */
+    private int prefixPos = -1;
+
+    private int suffixPos = -1;
 
     public ExpansionBuffer(String unresolved) {
-        this.unresolved = unresolved != null ? unresolved : "";
+        this.buffer = unresolved != null ? unresolved.toCharArray() : new char[0];
+        this.resolved = new StringBuilder(buffer.length);
     }
 
     public boolean hasMoreLegalPlaceholders() {
-        int prefixPos = unresolved.indexOf("${");
-        int suffixPos = unresolved.indexOf("}", prefixPos + 2);
+        if (prefixPos < 0) {
+            prefixPos = indexOf('$', '{', start);
+            if (prefixPos >= 0) {
+                suffixPos = indexOf('}', prefixPos + 2);
+            }
+        }
         return prefixPos >= 0 && suffixPos >= 0;
     }
 
     public String extractPropertyKey() {
-        advanceToNextPrefix();
-
-        discardPrefix();
-
-        String key = beforeNextSuffix();
-
-        discardToAfterNextSuffix();
+        if (!hasMoreLegalPlaceholders()) {
+            throw new IllegalStateException("No placeholder remains in: " + this);
+        }
 
+        resolved.append(buffer, start, prefixPos - start);
+        String key = new String(buffer, prefixPos + 2, suffixPos - prefixPos - 2);
+        start = suffixPos + 1;
+        prefixPos = -1;
         return key;
     }
 
     public String toString() {
-        return resolved.toString() + unresolved;
+        return resolved.toString() + String.valueOf(buffer, start, buffer.length - start);
     }
 
     public void add(String newKey, String newValue) {
@@ -65,34 +81,39 @@ public class ExpansionBuffer {
     }
 
     private void expandFurther(String value) {
-        unresolved = value + unresolved;
+        int length = value.length();
+        if (length > start) {
+            // Make room in front of the unresolved text, with some to spare for the values yet to come.
+            int remaining = buffer.length - start;
+            char[] grown = new char[remaining + Math.max(length, remaining)];
+            System.arraycopy(buffer, start, grown, grown.length - remaining, remaining);
+            buffer = grown;
+            start = grown.length - remaining;
+        }
+        start -= length;
+        value.getChars(0, length, buffer, start);
+        prefixPos = -1;
     }
 
     private void skipUnresolvedPlaceholder(String newKey) {
         resolved.append("${").append(newKey).append("}");
     }
 
-    private void discardToAfterNextSuffix() {
-        int propertySuffixPos = unresolved.indexOf("}");
-        unresolved = unresolved.substring(propertySuffixPos + 1);
-    }
-
-    private void advanceToNextPrefix() {
-        resolved.append(beforePrefix());
-    }
-
-    private void discardPrefix() {
-        int propertyPrefixPos = unresolved.indexOf("${");
-        unresolved = unresolved.substring(propertyPrefixPos + 2);
-    }
-
-    private String beforePrefix() {
-        int propertyPrefixPos = unresolved.indexOf("${");
-        return unresolved.substring(0, propertyPrefixPos);
+    private int indexOf(char c, int from) {
+        for (int i = from; i < buffer.length; i++) {
+            if (buffer[i] == c) {
+                return i;
+            }
+        }
+        return -1;
     }
 
-    private String beforeNextSuffix() {
-        int propertySuffixPos = unresolved.indexOf("}");
-        return unresolved.substring(0, propertySuffixPos);
+    private int indexOf(char first, char second, int from) {
+        for (int i = from; i < buffer.length - 1; i++) {
+            if (buffer[i] == first && buffer[i + 1] == second) {
+                return i;
+            }
+        }
+        return -1;
     }
 }
@@ -0,0 +1,13 @@
+package com.e_gineering.maven.gitflowhelper.properties;
+
+/**
+ * A read-only source of property values, ie: the system environment.
+ */
+public interface PropertyLookup {
+
+    /**
+     * @param key The property name
+     * @return The value, or null if there is none.
+     */
+    String get(String key);
+}
@@ -26,14 +26,21 @@ import java.util.Properties;
  */
 public class PropertyResolver {
 
-    public static String resolveValue(String value, Properties properties, Properties environment) {
-        return resolveValue(new ExpansionBuffer(value), new CircularDefinitionPreventer(), properties, environment);
+    public static String resolveValue(String value, Properties properties, PropertyLookup environment) {
+        return resolveValue(value, lookup(properties, environment));
     }
 
-    private static String resolveValue(ExpansionBuffer buffer, CircularDefinitionPreventer circularDefinitionPreventer, Properties properties, Properties environment) {
+    /**
+     * Resolves the value against a single source of properties, ie: a {@link PropertySnapshot}.
+     */
+    public static String resolveValue(String value, PropertyLookup properties) {
+        return resolveValue(new ExpansionBuffer(value), new CircularDefinitionPreventer(), properties);
+    }
+
+    private static String resolveValue(ExpansionBuffer buffer, CircularDefinitionPreventer circularDefinitionPreventer, PropertyLookup properties) {
         while (buffer.hasMoreLegalPlaceholders()) {
             String newKey = buffer.extractPropertyKey();
-            String newValue = fromPropertiesThenSystemThenEnvironment(newKey, properties, environment);
+            String newValue = properties.get(newKey);
 
             circularDefinitionPreventer.visited(newKey, newValue);
 
@@ -44,7 +51,14 @@ public class PropertyResolver {
 
     }
 
-    private static String fromPropertiesThenSystemThenEnvironment(String key, Properties properties, Properties environment) {
+    /**
+     * @return A lookup reading the given (live) properties, then system properties, then the environment.
+     */
+    static PropertyLookup lookup(final Properties properties, final PropertyLookup environment) {
+        return key -> fromPropertiesThenSystemThenEnvironment(key, properties, environment);
+    }
+
+    static String fromPropertiesThenSystemThenEnvironment(String key, Properties properties, PropertyLookup environment) {
         String value = properties.getProperty(key);
 
         // try global environment
@@ -54,7 +68,7 @@ public class PropertyResolver {
 
         // try environment variable
         if (value == null && key.startsWith("env.") && environment != null) {
-            value = environment.getProperty(key.substring(4));
+            value = environment.get(key.substring(4));
         }
 
         return value;
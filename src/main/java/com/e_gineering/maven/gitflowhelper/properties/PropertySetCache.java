@@ -0,0 +1,192 @@
+package com.e_gineering.maven.gitflowhelper.properties;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Session scoped caches for set-properties, which usually runs with the same configuration (inherited from a parent
+ * pom) in every module of the reactor.
+ * <p/>
+ * Property files are parsed once, and parsed again only if their size or modification time changes. Resolved property
+ * sets are kept along with the values of every property outside the set they were resolved against, and reused by any
+ * module in which those values are the same. Both are safe to use from parallel builds.
+ */
+public final class PropertySetCache {
+
+    private static final Object SESSION_KEY = PropertySetCache.class;
+
+    /* The most resolutions of any one set to keep, for modules which differ in the properties the set refers to. */
+    private static final int MAX_RESOLUTIONS = 16;
+
+    private final ConcurrentMap<File, LoadedFile> files = new ConcurrentHashMap<>();
+    private final ConcurrentMap<SetKey, List<Resolution>> resolutions = new ConcurrentHashMap<>();
+
+    PropertySetCache() {
+    }
+
+    /**
+     * Returns the cache for the given session, creating it if this is the first request.
+     *
+     * @param session The current maven session
+     * @return The cache
+     */
+    public static PropertySetCache forSession(final MavenSession session) {
+        SessionData data = session.getRepositorySession().getData();
+
+        Object cache = data.get(SESSION_KEY);
+        while (cache == null) {
+            data.set(SESSION_KEY, null, new PropertySetCache());
+            cache = data.get(SESSION_KEY);
+        }
+
+        return (PropertySetCache) cache;
+    }
+
+    /**
+     * Loads a property file, unless it's been loaded already and is unchanged since.
+     *
+     * @param file The property file
+     * @return A copy of the properties in the file
+     * @throws IOException if the file can't be read
+     */
+    public Properties load(final File file) throws IOException {
+        File canonicalFile = file.getCanonicalFile();
+        long size = canonicalFile.length();
+        long lastModified = canonicalFile.lastModified();
+
+        LoadedFile loaded = files.get(canonicalFile);
+        if (loaded == null || loaded.size != size || loaded.lastModified != lastModified) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(canonicalFile.toPath())) {
+                properties.load(in);
+            }
+            loaded = new LoadedFile(size, lastModified, properties);
+            files.put(canonicalFile, loaded);
+        }
+
+        Properties copy = new Properties();
+        copy.putAll(loaded.properties);
+        return copy;
+    }
+
+    /**
+     * Resolves a property set as {@link PropertySetResolver#resolve(Properties, String, Function, PropertyLookup)} does,
+     * reusing a previous resolution of the same set if every property it referred to still has the same value.
+     *
+     * @return The resolved values by resolved key, in the order of the set. Not modifiable.
+     */
+    public Map<String, String> resolve(final Properties toInject, final String keyPrefix, final Function<String, PropertyTemplate> templates,
+                                       final PropertyLookup properties)
+    {
+        SetKey key = new SetKey(toInject, keyPrefix);
+        List<Resolution> previous = resolutions.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>());
+        for (Resolution resolution : previous) {
+            if (resolution.isValidFor(properties)) {
+                return resolution.values;
+            }
+        }
+
+        RecordingLookup recording = new RecordingLookup(properties);
+        Resolution resolution = new Resolution(recording.observed,
+                Collections.unmodifiableMap(PropertySetResolver.resolve(toInject, keyPrefix, templates, recording)));
+        if (previous.size() < MAX_RESOLUTIONS) {
+            previous.add(resolution);
+        }
+        return resolution.values;
+    }
+
+    private static class LoadedFile {
+        private final long size;
+        private final long lastModified;
+        private final Properties properties;
+
+        private LoadedFile(final long size, final long lastModified, final Properties properties) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.properties = properties;
+        }
+    }
+
+    private static class SetKey {
+        private final Map<Object, Object> properties;
+        private final String keyPrefix;
+        private final int hashCode;
+
+        private SetKey(final Properties properties, final String keyPrefix) {
+            this.properties = new HashMap<>(properties);
+            this.keyPrefix = keyPrefix;
+            this.hashCode = Objects.hash(this.properties, keyPrefix);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof SetKey)) {
+                return false;
+            }
+            SetKey other = (SetKey) o;
+            return hashCode == other.hashCode && keyPrefix.equals(other.keyPrefix) && properties.equals(other.properties);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class Resolution {
+        /* The property values seen, by key. */
+        private final Map<String, String> observed;
+        private final Map<String, String> values;
+
+        private Resolution(final Map<String, String> observed, final Map<String, String> values) {
+            this.observed = observed;
+            this.values = values;
+        }
+
+        private boolean isValidFor(final PropertyLookup properties) {
+            for (Map.Entry<String, String> observation : observed.entrySet()) {
+                if (!Objects.equals(observation.getValue(), properties.get(observation.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Records every property looked up while resolving a set.
+     */
+    private static class RecordingLookup implements PropertyLookup {
+        private final PropertyLookup target;
+        private final Map<String, String> observed = new HashMap<>();
+
+        private RecordingLookup(final PropertyLookup target) {
+            this.target = target;
+        }
+
+        @Override
+        public String get(final String key) {
+            if (observed.containsKey(key)) {
+                return observed.get(key);
+            }
+            String value = target.get(key);
+            observed.put(key, value);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.e_gineering.maven.gitflowhelper.properties;
+
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Resolves a whole set of properties about to be set, where values may refer to other properties of the set.
+ * <p/>
+ * Each value is resolved once, after the values of the properties in the set it refers to, so references are
+ * followed through the set regardless of the order its properties are listed in. A property referring to itself, ie:
+ * <code>argLine=${argLine} -Xmx1g</code>, refers to the value it has before the set is applied. Any other cycle is
+ * reported as a circular definition.
+ */
+public final class PropertySetResolver {
+
+    private final Function<String, PropertyTemplate> templates;
+
+    /* The unresolved values of the set, by (resolved) key. */
+    private final Map<String, String> unresolved = new LinkedHashMap<>();
+    /* The set's resolved values. */
+    private final Map<String, String> resolved = new HashMap<>();
+    /* The set's resolved values, in front of the existing properties. */
+    private final PropertyLookup lookup;
+    /* The keys being resolved, outermost first. */
+    private final Set<String> resolving = new LinkedHashSet<>();
+
+    private PropertySetResolver(final Function<String, PropertyTemplate> templates, final PropertyLookup properties) {
+        this.templates = templates;
+        this.lookup = key -> {
+            String value = resolved.get(key);
+            return value != null ? value : properties.get(key);
+        };
+    }
+
+    /**
+     * Resolves the keys and values of the given set.
+     *
+     * @param toInject    The properties to resolve
+     * @param keyPrefix   Prepended to every (resolved) key
+     * @param templates   Provides the (possibly cached) template for an expression
+     * @param properties  The properties the set will be applied to, ie: a {@link PropertySnapshot}
+     * @return The resolved values by resolved key, in the order of the set.
+     * @throws IllegalArgumentException if properties in the set refer to each other in a cycle.
+     */
+    public static Map<String, String> resolve(final Properties toInject, final String keyPrefix, final Function<String, PropertyTemplate> templates,
+                                              final PropertyLookup properties)
+    {
+        PropertySetResolver resolver = new PropertySetResolver(templates, properties);
+        for (Enumeration<?> propertyNames = toInject.propertyNames(); propertyNames.hasMoreElements(); ) {
+            String propertyName = propertyNames.nextElement().toString();
+            String key = keyPrefix + templates.apply(propertyName).resolve(properties);
+            resolver.unresolved.put(key, toInject.getProperty(propertyName));
+        }
+
+        Map<String, String> values = new LinkedHashMap<>(resolver.unresolved.size() * 2);
+        for (String key : resolver.unresolved.keySet()) {
+            values.put(key, resolver.valueOf(key));
+        }
+        return values;
+    }
+
+    private String valueOf(final String key) {
+        String resolvedValue = resolved.get(key);
+        if (resolvedValue != null) {
+            return resolvedValue;
+        }
+
+        if (!resolving.add(key)) {
+            StringBuilder message = new StringBuilder("Circular property definition: ");
+            for (String visited : resolving) {
+                message.append(visited).append("=").append(unresolved.get(visited)).append(" -> ");
+            }
+            throw new IllegalArgumentException(message.append(key).append("=").append(unresolved.get(key)).toString());
+        }
+
+        PropertyTemplate template = templates.apply(unresolved.get(key));
+        for (String reference : template.getKeys()) {
+            if (!reference.equals(key) && unresolved.containsKey(reference)) {
+                valueOf(reference);
+            }
+        }
+
+        // Until it's set below, the key itself still has the value it had before the set is applied.
+        String value = template.resolve(lookup);
+        resolved.put(key, value);
+        resolving.remove(key);
+        return value;
+    }
+}
@@ -0,0 +1,89 @@
+package com.e_gineering.maven.gitflowhelper.properties;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * An immutable copy of the properties expressions are resolved against: the project properties, then the system
+ * properties, then (for <code>env.</code> keys) the environment.
+ * <p/>
+ * Project and system properties are synchronized Hashtables, and the system properties are shared by every module of
+ * the reactor. Looking each placeholder up in them directly contends on their monitors in a parallel build; a snapshot
+ * copies each of them once (per mojo execution), after which lookups take no locks at all. Changes made after the
+ * snapshot is taken are not seen by it.
+ */
+public final class PropertySnapshot implements PropertyLookup {
+
+    private final Map<String, String> project;
+    private final Map<String, String> system;
+    private final PropertyLookup environment;
+
+    PropertySnapshot(final Map<String, String> project, final Map<String, String> system, final PropertyLookup environment) {
+        this.project = project;
+        this.system = system;
+        this.environment = environment;
+    }
+
+    /**
+     * Takes a snapshot of the given project properties and the current system properties.
+     *
+     * @param properties  The project properties
+     * @param environment The environment variables
+     * @return The snapshot
+     */
+    public static PropertySnapshot of(final Properties properties, final PropertyLookup environment) {
+        return new PropertySnapshot(copy(properties), copy(System.getProperties()), environment);
+    }
+
+    /**
+     * Sets all of the given values at once, while holding the lock of the target properties, so that a snapshot taken
+     * concurrently either sees all of them or none.
+     *
+     * @param target The project or system properties
+     * @param values The values to set
+     * @return The previous values of the properties which were replaced
+     */
+    public static Map<String, String> publish(final Properties target, final Map<String, String> values) {
+        Map<String, String> replaced = new LinkedHashMap<>();
+        synchronized (target) {
+            for (Map.Entry<String, String> value : values.entrySet()) {
+                Object previous = target.setProperty(value.getKey(), value.getValue());
+                if (previous != null) {
+                    replaced.put(value.getKey(), previous.toString());
+                }
+            }
+        }
+        return replaced;
+    }
+
+    private static Map<String, String> copy(final Properties properties) {
+        // clone() holds the lock for the whole copy, where iterating the properties themselves would not.
+        Properties clone = (Properties) properties.clone();
+
+        Map<String, String> copy = new HashMap<>(clone.size() * 2);
+        for (String name : clone.stringPropertyNames()) {
+            copy.put(name, clone.getProperty(name));
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    @Override
+    public String get(final String key) {
+        String value = project.get(key);
+
+        // try global environment
+        if (value == null) {
+            value = system.get(key);
+        }
+
+        // try environment variable
+        if (value == null && key.startsWith("env.") && environment != null) {
+            value = environment.get(key.substring(4));
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,161 @@
+package com.e_gineering.maven.gitflowhelper.properties;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An expression, split once into literal text and the properties it refers to, so that resolving it in every module
+ * doesn't parse it again.
+ * <p/>
+ * Resolving a template gives the same result as {@link PropertyResolver#resolveValue(String, Properties, PropertyLookup)}.
+ * Values which contain no placeholders themselves (by far the most common) are copied as-is. An expression using the
+ * same key twice, or with a value that needs expanding further, is resolved by the PropertyResolver instead, as it is
+ * the one to tell circular definitions apart.
+ */
+public final class PropertyTemplate {
+
+    private static final Object SESSION_KEY = PropertyTemplate.class;
+
+    private static final PropertyTemplate EMPTY = compile("");
+
+    private final String expression;
+
+    /* literals[i] precedes keys[i], and the last literal follows the last key. */
+    private final String[] literals;
+
+    private final String[] keys;
+
+    /* false if any key is used more than once. */
+    private final boolean distinctKeys;
+
+    private PropertyTemplate(final String expression, final String[] literals, final String[] keys, final boolean distinctKeys) {
+        this.expression = expression;
+        this.literals = literals;
+        this.keys = keys;
+        this.distinctKeys = distinctKeys;
+    }
+
+    /**
+     * Parses the given expression.
+     *
+     * @param expression The expression, ie: <code>${env.GIT_BRANCH}</code>. null is the same as "".
+     * @return The template
+     */
+    public static PropertyTemplate compile(final String expression) {
+        String source = expression != null ? expression : "";
+        List<String> literals = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+
+        int position = 0;
+        while (true) {
+            int prefixPos = source.indexOf("${", position);
+            int suffixPos = prefixPos < 0 ? -1 : source.indexOf('}', prefixPos + 2);
+            if (suffixPos < 0) {
+                literals.add(source.substring(position));
+                break;
+            }
+            literals.add(source.substring(position, prefixPos));
+            keys.add(source.substring(prefixPos + 2, suffixPos));
+            position = suffixPos + 1;
+        }
+
+        return new PropertyTemplate(source, literals.toArray(new String[0]), keys.toArray(new String[0]),
+                new HashSet<>(keys).size() == keys.size());
+    }
+
+    /**
+     * Returns the template for the expression, parsing it only the first time it's used in the session.
+     *
+     * @param session    The current maven session
+     * @param expression The expression. null is the same as "".
+     * @return The template
+     */
+    @SuppressWarnings("unchecked")
+    public static PropertyTemplate forSession(final MavenSession session, final String expression) {
+        if (expression == null) {
+            return EMPTY;
+        }
+
+        SessionData data = session.getRepositorySession().getData();
+
+        Object templates = data.get(SESSION_KEY);
+        while (templates == null) {
+            data.set(SESSION_KEY, null, new ConcurrentHashMap<String, PropertyTemplate>());
+            templates = data.get(SESSION_KEY);
+        }
+
+        return ((ConcurrentMap<String, PropertyTemplate>) templates).computeIfAbsent(expression, PropertyTemplate::compile);
+    }
+
+    /**
+     * @return The keys of the properties the expression refers to, in order.
+     */
+    public List<String> getKeys() {
+        return Collections.unmodifiableList(Arrays.asList(keys));
+    }
+
+    /**
+     * @return true if the expression refers to no properties at all.
+     */
+    public boolean isLiteral() {
+        return keys.length == 0;
+    }
+
+    /**
+     * Resolves the expression against the given properties, then system properties, then (for <code>env.</code>
+     * keys) the environment. Placeholders for properties which can't be found are left in place.
+     *
+     * @param properties  The project properties
+     * @param environment The environment variables
+     * @return The resolved expression
+     */
+    public String resolve(final Properties properties, final PropertyLookup environment) {
+        return resolve(PropertyResolver.lookup(properties, environment));
+    }
+
+    /**
+     * Resolves the expression against a single source of properties, ie: a {@link PropertySnapshot}. Placeholders for
+     * properties which can't be found are left in place.
+     *
+     * @param properties The properties to resolve against
+     * @return The resolved expression
+     */
+    public String resolve(final PropertyLookup properties) {
+        if (isLiteral()) {
+            return literals[0];
+        }
+        if (!distinctKeys) {
+            return PropertyResolver.resolveValue(expression, properties);
+        }
+
+        StringBuilder resolved = new StringBuilder(expression.length() + 16 * keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            resolved.append(literals[i]);
+
+            String value = properties.get(keys[i]);
+            if (value == null) {
+                resolved.append("${").append(keys[i]).append('}');
+            } else if (value.indexOf('$') < 0) {
+                resolved.append(value);
+            } else {
+                // The value may hold placeholders of its own, possibly completed by what follows it.
+                return PropertyResolver.resolveValue(expression, properties);
+            }
+        }
+        return resolved.append(literals[keys.length]).toString();
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -39,7 +39,13 @@ public abstract class AbstractIntegrationTest {
 		// Always allow our plugin to use snapshot versions when building / testing ourselves.
 		verifier.getCliOptions().add("-DallowGitflowPluginSnapshot=true");
 		verifier.getCliOptions().add("-Dstub.project.version=" + stubProjectVersion);
+		// Keep the promotion cache of the stub projects out of the user's home.
+		verifier.getCliOptions().add("-DpromotionCacheDirectory=" + new File("target/it-promotion-cache").getAbsolutePath());
 		verifier.getEnvironmentVariables().put("GIT_BRANCH", gitBranch);
+		// Don't let the CI server building us answer for the stub projects.
+		for (String ciVariable : new String[] {"BRANCH_NAME", "CHANGE_ID", "TAG_NAME", "GITHUB_HEAD_REF", "GITHUB_REF", "CI_COMMIT_REF_NAME"}) {
+			verifier.getEnvironmentVariables().put(ciVariable, "");
+		}
 
 		if (settings != null) {
 			File settingsFile;
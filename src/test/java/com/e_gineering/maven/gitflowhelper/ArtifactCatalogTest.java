@@ -0,0 +1,177 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import org.eclipse.aether.transfer.ChecksumFailureException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ArtifactCatalogTest {
+
+	private static final String ABC_SHA256 = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void readWithoutChecksums() throws Exception {
+		List<ArtifactCatalog.Entry> entries = ArtifactCatalog.read(file("[artifacts]\ncom.example:app:jar:1.0\n\n  com.example:app:zip:dist:1.0  \n"), null);
+
+		assertEquals(2, entries.size());
+		assertEquals("com.example:app:jar:1.0", entries.get(0).getCoordinates());
+		assertEquals("com.example:app:zip:dist:1.0", entries.get(1).getCoordinates());
+		assertEquals(-1, entries.get(0).getSize());
+		assertNull(entries.get(0).getSha256());
+	}
+
+	@Test
+	public void readWithoutHeader() throws Exception {
+		List<ArtifactCatalog.Entry> entries = ArtifactCatalog.read(file("com.example:app:jar:1.0\ncom.example:app:zip:dist:1.0\n"), null);
+
+		assertEquals(2, entries.size());
+		assertEquals("com.example:app:jar:1.0", entries.get(0).getCoordinates());
+	}
+
+	@Test
+	public void readWithChecksums() throws Exception {
+		List<ArtifactCatalog.Entry> entries = ArtifactCatalog.read(file("[artifacts]\ncom.example:app:jar:1.0\ncom.example:app:zip:dist:1.0\n"),
+				file("[checksums]\ncom.example:app:jar:1.0 3 " + ABC_SHA256 + "\ncom.example:other:jar:1.0 3 " + ABC_SHA256 + "\n"));
+
+		assertEquals(2, entries.size());
+		assertEquals("com.example:app:jar:1.0", entries.get(0).getCoordinates());
+		assertEquals(3, entries.get(0).getSize());
+		assertEquals(ABC_SHA256, entries.get(0).getSha256());
+		assertEquals("com.example:app:zip:dist:1.0", entries.get(1).getCoordinates());
+		assertNull(entries.get(1).getSha256());
+	}
+
+	@Test
+	public void writeRoundTrip() throws Exception {
+		List<ArtifactCatalog.Entry> entries = Arrays.asList(
+				new ArtifactCatalog.Entry("com.example:app:jar:1.0", 3, ABC_SHA256),
+				new ArtifactCatalog.Entry("com.example:app:zip:dist:1.0"));
+
+		// The catalog itself is in the original format, as read by earlier versions.
+		byte[] catalog = ArtifactCatalog.write(entries);
+		assertEquals("[artifacts]\ncom.example:app:jar:1.0\ncom.example:app:zip:dist:1.0\n",
+				new String(catalog, StandardCharsets.UTF_8).replace("\r\n", "\n"));
+		byte[] checksums = ArtifactCatalog.writeChecksums(entries);
+		assertEquals("[checksums]\ncom.example:app:jar:1.0 3 " + ABC_SHA256 + "\n",
+				new String(checksums, StandardCharsets.UTF_8).replace("\r\n", "\n"));
+
+		List<ArtifactCatalog.Entry> read = ArtifactCatalog.read(file(catalog), file(checksums));
+		assertEquals(ABC_SHA256, read.get(0).getSha256());
+		assertEquals(3, read.get(0).getSize());
+		assertNull(read.get(1).getSha256());
+	}
+
+	@Test
+	public void malformed() throws Exception {
+		for (String content : new String[]{
+				"[artifacts v2]\ncom.example:app:jar:1.0\n",
+				"[checksums]\ncom.example:app:jar:1.0 3\n",
+				"[checksums]\ncom.example:app:jar:1.0 three " + ABC_SHA256 + "\n",
+				"[checksums]\ncom.example:app:jar:1.0 3 ../../etc\n",
+				"com.example:app:jar:1.0 3 " + ABC_SHA256 + "\n"}) {
+			try {
+				ArtifactCatalog.read(file("[artifacts]\ncom.example:app:jar:1.0\n"), file(content));
+				fail("Expected " + content + " to be rejected");
+			} catch (IOException expected) {
+			}
+		}
+		try {
+			ArtifactCatalog.read(file("[artifacts v2]\ncom.example:app:jar:1.0\n"), null);
+			fail("Expected an unknown catalog format to be rejected");
+		} catch (IOException expected) {
+		}
+	}
+
+	@Test
+	public void describeConcurrently() throws Exception {
+		List<String> coordinates = new ArrayList<>();
+		List<File> files = new ArrayList<>();
+		Random random = new Random(8);
+		for (int i = 0; i < 8; i++) {
+			byte[] content = new byte[256 * 1024];
+			random.nextBytes(content);
+			File file = folder.newFile();
+			Files.write(file.toPath(), content);
+			coordinates.add("com.example:app:jar:c" + i + ":1.0");
+			files.add(file);
+		}
+		coordinates.add("com.example:app:pom:1.0");
+		files.add(null);
+
+		List<ArtifactCatalog.Entry> serial = ArtifactCatalog.describe(coordinates, files, 1);
+		List<ArtifactCatalog.Entry> concurrent = ArtifactCatalog.describe(coordinates, files, 4);
+
+		assertEquals(coordinates.size(), concurrent.size());
+		for (int i = 0; i < coordinates.size(); i++) {
+			assertEquals(coordinates.get(i), concurrent.get(i).getCoordinates());
+			assertEquals(serial.get(i).getSha256(), concurrent.get(i).getSha256());
+			assertEquals(serial.get(i).getSize(), concurrent.get(i).getSize());
+		}
+		assertEquals(256 * 1024, concurrent.get(0).getSize());
+		assertNull(concurrent.get(8).getSha256());
+	}
+
+	@Test
+	public void verify() throws Exception {
+		File file = folder.newFile();
+		Files.write(file.toPath(), "abc".getBytes(StandardCharsets.UTF_8));
+		ArtifactCatalog.Entry entry = new ArtifactCatalog.Entry("com.example:app:jar:1.0", 3, ABC_SHA256);
+
+		assertEquals(ABC_SHA256, ArtifactCatalog.sha256(file));
+		assertTrue(entry.matches(file));
+		entry.verify(file);
+
+		Files.write(file.toPath(), "abd".getBytes(StandardCharsets.UTF_8));
+		assertFalse(entry.matches(file));
+		try {
+			entry.verify(file);
+			fail("Expected a checksum failure");
+		} catch (ChecksumFailureException cfe) {
+			assertEquals(ABC_SHA256, cfe.getExpected());
+		}
+
+		Files.write(file.toPath(), "abcd".getBytes(StandardCharsets.UTF_8));
+		try {
+			entry.verify(file);
+			fail("Expected a size failure");
+		} catch (ChecksumFailureException expected) {
+		}
+
+		// Nothing to verify against.
+		ArtifactCatalog.Entry unknown = new ArtifactCatalog.Entry("com.example:app:jar:1.0");
+		unknown.verify(file);
+		assertFalse(unknown.matches(file));
+		assertFalse(entry.matches(new File(folder.getRoot(), "missing.jar")));
+	}
+
+	private File file(String content) throws IOException {
+		return file(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private File file(byte[] content) throws IOException {
+		File file = folder.newFile();
+		Files.write(file.toPath(), content);
+		return file;
+	}
+}
@@ -0,0 +1,99 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ArtifactFilesTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void hardLink() throws Exception {
+		File source = artifact("stub-1.0.jar", "content");
+		File target = new File(folder.getRoot(), "target/stub-1.0.jar");
+
+		assertEquals(ArtifactFiles.Method.LINK, ArtifactFiles.place(source, target, true));
+		assertTrue(Files.isSameFile(source.toPath(), target.toPath()));
+
+		// The link outlives the (temporary) repository it was resolved to.
+		assertTrue(source.delete());
+		assertEquals("content", new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void withoutLinks() throws Exception {
+		File source = artifact("stub-1.0.jar", "content");
+		File target = new File(folder.getRoot(), "target/stub-1.0.jar");
+
+		ArtifactFiles.Method method = ArtifactFiles.place(source, target, false);
+
+		assertNotEquals(ArtifactFiles.Method.LINK, method);
+		assertFalse(Files.isSameFile(source.toPath(), target.toPath()));
+		assertArrayEquals(Files.readAllBytes(source.toPath()), Files.readAllBytes(target.toPath()));
+		assertEquals(source.lastModified(), target.lastModified());
+
+		// A later change to the placed file leaves the source alone.
+		Files.write(target.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+		assertEquals("content", new String(Files.readAllBytes(source.toPath()), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void rewrittenInPlace() throws Exception {
+		File source = artifact("stub-1.0.jar", "content");
+		File target = new File(folder.getRoot(), "target/stub-1.0.jar");
+		// As placed by an earlier build which linked artifacts.
+		ArtifactFiles.place(source, target, true);
+
+		ArtifactFiles.place(source, target, false);
+
+		assertFalse(Files.isSameFile(source.toPath(), target.toPath()));
+		// An archiver rewriting the placed file, without truncating or replacing it, leaves the source alone.
+		try (FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap("rewritten".getBytes(StandardCharsets.UTF_8)));
+		}
+		assertEquals("rewritten", new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+		assertEquals("content", new String(Files.readAllBytes(source.toPath()), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void replacesExisting() throws Exception {
+		File source = artifact("stub-1.0.jar", "new");
+		File target = new File(folder.newFolder("target"), "stub-1.0.jar");
+		Files.write(target.toPath(), "old".getBytes(StandardCharsets.UTF_8));
+
+		ArtifactFiles.place(source, target, true);
+		assertEquals("new", new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+
+		ArtifactFiles.place(source, target, false);
+		assertEquals("new", new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+
+		// Placing a file on itself leaves it be.
+		assertEquals(ArtifactFiles.Method.LINK, ArtifactFiles.place(target, target, false));
+		assertEquals("new", new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+	}
+
+	private File artifact(String name, String content) throws Exception {
+		File file = new File(folder.newFolder(), name);
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		assertTrue(file.setLastModified(1500000000000L));
+		return file;
+	}
+}
@@ -0,0 +1,173 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ArtifactPipelineTest {
+
+	private static final int ARTIFACTS = 16;
+
+	/* Time taken to "download" each artifact from the stand-in repository. */
+	private static final long LATENCY_MILLIS = 150;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void resolvesCopiesAndAttachesEverything() throws Exception {
+		File repository = standInRepository();
+		File target = folder.newFolder("target");
+
+		Set<String> attached = Collections.synchronizedSet(new HashSet<>());
+		List<ArtifactResult> results = new ArtifactPipeline(4, resolver(repository, new AtomicLong()), copier(target))
+				.run(requests(), result -> attached.add(result.getArtifact().getClassifier()));
+
+		assertEquals(ARTIFACTS, results.size());
+		assertEquals(ARTIFACTS, attached.size());
+		for (ArtifactResult result : results) {
+			assertEquals(target, result.getArtifact().getFile().getParentFile());
+			assertArrayEquals(Files.readAllBytes(new File(repository, result.getArtifact().getFile().getName()).toPath()),
+					Files.readAllBytes(result.getArtifact().getFile().toPath()));
+		}
+	}
+
+	/**
+	 * Several artifacts are resolved at once, and the first is attached while the rest are still being resolved. How much
+	 * faster that is against a real repository is checked by {@link ParallelBuildIT}.
+	 */
+	@Test(timeout = 60000)
+	public void resolvesConcurrently() throws Exception {
+		File repository = standInRepository();
+		AtomicInteger resolving = new AtomicInteger();
+		AtomicInteger mostResolving = new AtomicInteger();
+		AtomicLong firstAttached = new AtomicLong();
+		AtomicLong lastResolved = new AtomicLong();
+
+		ArtifactPipeline.Resolver resolver = request -> {
+			mostResolving.accumulateAndGet(resolving.incrementAndGet(), Math::max);
+			try {
+				return resolver(repository, lastResolved).resolve(request);
+			} finally {
+				resolving.decrementAndGet();
+			}
+		};
+		new ArtifactPipeline(8, resolver, copier(folder.newFolder("target"))).run(requests(), result -> {
+			firstAttached.compareAndSet(0, System.nanoTime());
+		});
+
+		assertTrue("At most " + mostResolving.get() + " resolved at once", mostResolving.get() > 1);
+		assertTrue("Attached before the last was resolved", firstAttached.get() < lastResolved.get());
+	}
+
+	@Test
+	public void resolutionFailure() throws Exception {
+		File repository = standInRepository();
+		ArtifactPipeline.Resolver failing = request -> {
+			if ("c7".equals(request.getArtifact().getClassifier())) {
+				throw new ArtifactResolutionException(Collections.emptyList(), "not found", new ArtifactNotFoundException(request.getArtifact(), null));
+			}
+			return resolver(repository, new AtomicLong()).resolve(request);
+		};
+
+		try {
+			new ArtifactPipeline(4, failing, copier(folder.newFolder("target"))).run(requests(), result -> {
+			});
+			fail("Expected the resolution to fail");
+		} catch (ArtifactResolutionException are) {
+			assertEquals("not found", are.getMessage());
+		}
+	}
+
+	@Test
+	public void copyFailure() throws Exception {
+		File repository = standInRepository();
+		IOException failure = new IOException("disk full");
+
+		try {
+			new ArtifactPipeline(4, resolver(repository, new AtomicLong()), result -> {
+				throw failure;
+			}).run(requests(), result -> {
+			});
+			fail("Expected the copy to fail");
+		} catch (IOException ioe) {
+			assertSame(failure, ioe);
+		}
+	}
+
+	/**
+	 * A directory of artifacts standing in for a remote repository.
+	 */
+	private File standInRepository() throws IOException {
+		File repository = folder.newFolder();
+		Random random = new Random(ARTIFACTS);
+		for (int i = 0; i < ARTIFACTS; i++) {
+			byte[] content = new byte[64 * 1024];
+			random.nextBytes(content);
+			Files.write(new File(repository, "stub-1.0-c" + i + ".jar").toPath(), content);
+		}
+		return repository;
+	}
+
+	/**
+	 * "Downloads" artifacts from the stand-in repository, with a fixed latency per artifact.
+	 */
+	private ArtifactPipeline.Resolver resolver(File repository, AtomicLong lastResolved) {
+		return request -> {
+			try {
+				Thread.sleep(LATENCY_MILLIS);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			File file = new File(repository, "stub-1.0-" + request.getArtifact().getClassifier() + ".jar");
+			ArtifactResult result = new ArtifactResult(request);
+			result.setArtifact(request.getArtifact().setFile(file));
+			lastResolved.accumulateAndGet(System.nanoTime(), Math::max);
+			return result;
+		};
+	}
+
+	private ArtifactPipeline.Copier copier(File target) {
+		return result -> {
+			File copy = new File(target, result.getArtifact().getFile().getName());
+			Files.copy(result.getArtifact().getFile().toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			result.setArtifact(result.getArtifact().setFile(copy));
+			return result;
+		};
+	}
+
+	private static List<ArtifactRequest> requests() {
+		List<ArtifactRequest> requests = new ArrayList<>();
+		for (int i = 0; i < ARTIFACTS; i++) {
+			requests.add(new ArtifactRequest(new DefaultArtifact("com.e-gineering", "stub", "c" + i, "jar", "1.0"), Collections.emptyList(), null));
+		}
+		return requests;
+	}
+}
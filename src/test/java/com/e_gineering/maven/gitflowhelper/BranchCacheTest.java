@@ -0,0 +1,99 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import com.e_gineering.maven.gitflowhelper.git.GitDirectory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class BranchCacheTest {
+
+	private static final String SHA_A = "1111111111111111111111111111111111111111";
+	private static final String SHA_B = "2222222222222222222222222222222222222222";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void validityKeyTracksHeadRefsAndPatterns() throws Exception {
+		File root = folder.newFolder("repo");
+		write(new File(root, ".git/HEAD"), "ref: refs/heads/develop\n");
+		write(new File(root, ".git/refs/heads/develop"), SHA_A + "\n");
+		GitDirectory gitDirectory = GitDirectory.locate(root);
+
+		String key = BranchCache.validityKey(gitDirectory, "patterns");
+		assertEquals(key, BranchCache.validityKey(gitDirectory, "patterns"));
+		assertNotEquals(key, BranchCache.validityKey(gitDirectory, "other patterns"));
+
+		write(new File(root, ".git/refs/heads/develop"), SHA_B + "\n");
+		String committed = BranchCache.validityKey(gitDirectory, "patterns");
+		assertNotEquals(key, committed);
+
+		write(new File(root, ".git/HEAD"), "ref: refs/heads/master\n");
+		write(new File(root, ".git/refs/heads/master"), SHA_B + "\n");
+		assertNotEquals(committed, BranchCache.validityKey(gitDirectory, "patterns"));
+	}
+
+	@Test
+	public void detachedHeadKeyTracksLooseRefDirectories() throws Exception {
+		File root = folder.newFolder("repo");
+		write(new File(root, ".git/HEAD"), SHA_A + "\n");
+		write(new File(root, ".git/refs/remotes/origin/release/1.0"), SHA_A + "\n");
+		GitDirectory gitDirectory = GitDirectory.locate(root);
+
+		String key = BranchCache.validityKey(gitDirectory, "patterns");
+		File hotfixes = new File(root, ".git/refs/remotes/origin/hotfix");
+		write(new File(hotfixes, "1.0.1"), SHA_A + "\n");
+		assertTrue(hotfixes.setLastModified(System.currentTimeMillis() + 10000));
+
+		assertNotEquals(key, BranchCache.validityKey(gitDirectory, "patterns"));
+	}
+
+	@Test
+	public void entriesSurviveAcrossInstances() throws Exception {
+		File workTree = folder.newFolder("repo");
+		File cacheFile = new File(folder.getRoot(), "target/branch.cache");
+
+		BranchCache cache = new BranchCache(cacheFile);
+		assertNull(cache.get(workTree, "key"));
+		cache.put(workTree, "key", "feature/foo");
+		assertTrue(cacheFile.isFile());
+
+		BranchCache nextBuild = new BranchCache(cacheFile);
+		assertEquals("feature/foo", nextBuild.get(workTree, "key"));
+		assertNull(nextBuild.get(workTree, "changed"));
+
+		// Rewritten after a clean, once something has been stored.
+		assertTrue(cacheFile.delete());
+		nextBuild.flush();
+		assertFalse(cacheFile.exists());
+		cache.flush();
+		assertEquals("feature/foo", new BranchCache(cacheFile).get(workTree, "key"));
+	}
+
+	@Test
+	public void corruptCacheIsEmpty() throws Exception {
+		File cacheFile = new File(folder.getRoot(), "branch.cache");
+		write(cacheFile, "\\u00zz=broken\n");
+
+		assertNull(new BranchCache(cacheFile).get(folder.getRoot(), "key"));
+	}
+
+	private static void write(File file, String content) throws IOException {
+		Files.createDirectories(file.getParentFile().toPath());
+		Files.write(file.toPath(), content.getBytes(UTF_8));
+	}
+}
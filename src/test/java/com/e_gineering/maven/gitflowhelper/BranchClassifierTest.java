@@ -0,0 +1,131 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class BranchClassifierTest {
+
+	private final BranchClassifier classifier = BranchClassifier.forPatterns("(origin/)?master", "(origin/)?support/(.*)",
+			"(origin/)?release/(.*)", "(origin/)?hotfix/(.*)", "(origin/)?develop");
+
+	@Test
+	public void cachedByConfiguration() {
+		assertSame(classifier, BranchClassifier.forPatterns("(origin/)?master", "(origin/)?support/(.*)",
+				"(origin/)?release/(.*)", "(origin/)?hotfix/(.*)", "(origin/)?develop"));
+		assertSame(BranchClassifier.compile("feature/.*"), BranchClassifier.compile("feature/.*"));
+	}
+
+	@Test
+	public void versionedBranchKeepsGroups() {
+		GitBranchInfo info = classifier.classify("origin/release/1.2.0");
+		assertEquals(GitBranchType.RELEASE, info.getType());
+		assertEquals("(origin/)?release/(.*)", info.getPattern());
+		assertEquals(2, info.getGroupCount());
+		assertEquals("origin/", info.getGroup(1));
+		assertEquals("1.2.0", info.getVersion());
+
+		info = classifier.classify("support/3.1");
+		assertEquals(GitBranchType.SUPPORT, info.getType());
+		assertNull(info.getGroup(1));
+		assertEquals("3.1", info.getVersion());
+	}
+
+	@Test
+	public void unversionedBranches() {
+		GitBranchInfo info = classifier.classify("develop");
+		assertEquals(GitBranchType.DEVELOPMENT, info.getType());
+		assertNull(info.getVersion());
+
+		info = classifier.classify("feature/foo");
+		assertEquals(GitBranchType.OTHER, info.getType());
+		assertEquals(0, info.getGroupCount());
+		assertNull(info.getVersion());
+
+		assertEquals(GitBranchType.UNDEFINED, classifier.classify(null).getType());
+		assertEquals(GitBranchType.UNDEFINED, classifier.classify("").getType());
+	}
+
+	@Test
+	public void precedence() {
+		// Matches both the master and development patterns.
+		BranchClassifier overlapping = BranchClassifier.forPatterns("(origin/)?ma.*", "(origin/)?support/(.*)",
+				"(origin/)?release/(.*)", "(origin/)?hotfix/(.*)", ".*");
+		assertEquals(GitBranchType.MASTER, overlapping.classify("main").getType());
+		assertEquals(GitBranchType.DEVELOPMENT, overlapping.classify("feature/foo").getType());
+	}
+
+	@Test
+	public void branchCategories() {
+		BranchClassifier categorized = BranchClassifier.forPatterns("(origin/)?master", "(origin/)?support/(.*)",
+				"(origin/)?release/(.*)", "(origin/)?hotfix/(.*)", "(origin/)?develop", Arrays.asList(
+						new BranchCategory("team-x-release", "(origin/)?team-x/release/(.*)", GitBranchType.RELEASE),
+						new BranchCategory("sandbox", "sandbox/.*", GitBranchType.OTHER),
+						new BranchCategory("team-x", "(origin/)?team-x/.*", GitBranchType.DEVELOPMENT)));
+
+		GitBranchInfo info = categorized.classify("origin/team-x/release/2.0");
+		assertEquals(GitBranchType.RELEASE, info.getType());
+		assertEquals("team-x-release", info.getCategory());
+		assertEquals("2.0", info.getVersion());
+
+		// Categories are checked in order.
+		info = categorized.classify("team-x/develop");
+		assertEquals(GitBranchType.DEVELOPMENT, info.getType());
+		assertEquals("team-x", info.getCategory());
+
+		info = categorized.classify("sandbox/spike");
+		assertEquals(GitBranchType.OTHER, info.getType());
+		assertEquals("sandbox", info.getCategory());
+
+		// The gitflow patterns take precedence.
+		info = categorized.classify("origin/develop");
+		assertEquals(GitBranchType.DEVELOPMENT, info.getType());
+		assertNull(info.getCategory());
+
+		info = categorized.classify("origin/sandbox/spike");
+		assertEquals(GitBranchType.OTHER, info.getType());
+		assertNull(info.getCategory());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void undefinedCategory() {
+		BranchClassifier.forPatterns("(origin/)?master", "(origin/)?support/(.*)", "(origin/)?release/(.*)",
+				"(origin/)?hotfix/(.*)", "(origin/)?develop", Arrays.asList(new BranchCategory("local", "local/.*", GitBranchType.UNDEFINED)));
+	}
+
+	@Test
+	public void literalPrefixes() {
+		assertEquals(Arrays.asList("origin/team-x/release/", "team-x/release/"), BranchClassifier.literalPrefixes("(origin/)?team-x/release/(.*)"));
+		assertEquals(Arrays.asList("sandbox/"), BranchClassifier.literalPrefixes("sandbox/.*"));
+		assertEquals(Arrays.asList("v1.2"), BranchClassifier.literalPrefixes("v1\\.2\\d*"));
+		assertEquals(Arrays.asList("ma"), BranchClassifier.literalPrefixes("mai?n"));
+		assertEquals(Arrays.asList("a"), BranchClassifier.literalPrefixes("a+b"));
+		assertEquals(Arrays.asList(""), BranchClassifier.literalPrefixes("main|master"));
+		assertEquals(Arrays.asList(""), BranchClassifier.literalPrefixes("(?i)main"));
+		assertEquals(Arrays.asList(""), BranchClassifier.literalPrefixes("(?:origin/)?main"));
+	}
+
+	@Test
+	public void manyCategories() {
+		List<BranchCategory> categories = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			categories.add(new BranchCategory("team-" + i, "(origin/)?team-" + i + "/release/(.*)", GitBranchType.RELEASE));
+		}
+		BranchClassifier categorized = BranchClassifier.forPatterns("(origin/)?master", "(origin/)?support/(.*)",
+				"(origin/)?release/(.*)", "(origin/)?hotfix/(.*)", "(origin/)?develop", categories);
+
+		GitBranchInfo info = categorized.classify("origin/team-421/release/4.2");
+		assertEquals("team-421", info.getCategory());
+		assertEquals("4.2", info.getVersion());
+		assertEquals(GitBranchType.OTHER, categorized.classify("team-421/feature/foo").getType());
+	}
+}
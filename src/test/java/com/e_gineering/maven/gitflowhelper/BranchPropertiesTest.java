@@ -0,0 +1,87 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class BranchPropertiesTest {
+
+	private static final String SHA_A = "1111111111111111111111111111111111111111";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void versionedBranch() {
+		GitBranchInfo release = new GitBranchInfo("origin/release/1.2", GitBranchType.RELEASE, "(origin/)?release/(.*)", new String[]{"origin/release/1.2", "origin/", "1.2"});
+
+		Properties properties = new BranchProperties(release, SHA_A).getProperties();
+
+		assertEquals("origin/release/1.2", properties.getProperty(BranchProperties.NAME));
+		assertEquals("RELEASE", properties.getProperty(BranchProperties.TYPE));
+		assertEquals("(origin/)?release/(.*)", properties.getProperty(BranchProperties.PATTERN));
+		assertEquals("1.2", properties.getProperty(BranchProperties.VERSION));
+		assertEquals(SHA_A, properties.getProperty(BranchProperties.HEAD_SHA));
+	}
+
+	@Test
+	public void remoteUnversionedBranches() {
+		GitBranchInfo develop = new GitBranchInfo("origin/develop", GitBranchType.DEVELOPMENT, "(origin/)?develop", new String[]{"origin/develop", "origin/"});
+		GitBranchInfo master = new GitBranchInfo("origin/master", GitBranchType.MASTER, "(origin/)?master", new String[]{"origin/master", "origin/"});
+
+		Properties developProperties = new BranchProperties(develop, SHA_A).getProperties();
+		Properties masterProperties = new BranchProperties(master, SHA_A).getProperties();
+
+		assertEquals("origin/develop", developProperties.getProperty(BranchProperties.NAME));
+		assertFalse(developProperties.containsKey(BranchProperties.VERSION));
+		assertEquals("origin/master", masterProperties.getProperty(BranchProperties.NAME));
+		assertFalse(masterProperties.containsKey(BranchProperties.VERSION));
+	}
+
+	@Test
+	public void undefinedBranch() {
+		Properties properties = new BranchProperties(new GitBranchInfo("", GitBranchType.UNDEFINED, null), null).getProperties();
+
+		assertEquals("", properties.getProperty(BranchProperties.NAME));
+		assertEquals("UNDEFINED", properties.getProperty(BranchProperties.TYPE));
+		assertFalse(properties.containsKey(BranchProperties.PATTERN));
+		assertFalse(properties.containsKey(BranchProperties.VERSION));
+		assertFalse(properties.containsKey(BranchProperties.HEAD_SHA));
+	}
+
+	@Test
+	public void write() throws Exception {
+		File file = new File(folder.getRoot(), "target/gitflow-branch.properties");
+		BranchProperties branchProperties = new BranchProperties(new GitBranchInfo("develop", GitBranchType.DEVELOPMENT, "(origin/)?develop"), SHA_A);
+
+		branchProperties.write(file);
+		assertEquals("# gitflow-helper-maven-plugin resolved branch\n" +
+				"gitflow.branch.name=develop\n" +
+				"gitflow.branch.pattern=(origin/)?develop\n" +
+				"gitflow.branch.type=DEVELOPMENT\n" +
+				"gitflow.head.sha=" + SHA_A + "\n", new String(Files.readAllBytes(file.toPath()), ISO_8859_1));
+
+		Properties loaded = new Properties();
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			loaded.load(in);
+		}
+		assertEquals(branchProperties.getProperties(), loaded);
+
+		// An up to date file is left alone.
+		assertEquals(true, file.setLastModified(1000L));
+		branchProperties.write(file);
+		assertEquals(1000L, file.lastModified());
+	}
+}
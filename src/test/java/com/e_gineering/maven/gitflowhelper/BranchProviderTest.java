@@ -0,0 +1,64 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import com.e_gineering.maven.gitflowhelper.properties.PropertyLookup;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class BranchProviderTest {
+
+	@Test
+	public void jenkins() {
+		assertEquals("origin/feature/foo", BranchProvider.JENKINS.resolveBranchName(env("GIT_BRANCH", "origin/feature/foo", "BRANCH_NAME", "develop")));
+		assertEquals("develop", BranchProvider.JENKINS.resolveBranchName(env("GIT_BRANCH", " ", "BRANCH_NAME", "develop")));
+		assertEquals("feature/foo", BranchProvider.JENKINS.resolveBranchName(env("BRANCH_NAME", "PR-12", "CHANGE_ID", "12", "CHANGE_BRANCH", "feature/foo")));
+		assertNull(BranchProvider.JENKINS.resolveBranchName(env("BRANCH_NAME", "PR-12", "CHANGE_ID", "12")));
+		assertNull(BranchProvider.JENKINS.resolveBranchName(env("GIT_BRANCH", "1.0.0", "BRANCH_NAME", "1.0.0", "TAG_NAME", "1.0.0")));
+		assertNull(BranchProvider.JENKINS.resolveBranchName(env()));
+	}
+
+	@Test
+	public void jenkinsChangeRequest() {
+		assertEquals("feature/foo", BranchProvider.JENKINS.resolveBranchName(env("GIT_BRANCH", "PR-1", "BRANCH_NAME", "PR-1", "CHANGE_ID", "1", "CHANGE_BRANCH", "feature/foo")));
+		assertNull(BranchProvider.JENKINS.resolveBranchName(env("GIT_BRANCH", "PR-1", "CHANGE_ID", "1")));
+	}
+
+	@Test
+	public void github() {
+		assertEquals("release/1.0", BranchProvider.GITHUB.resolveBranchName(env("GITHUB_REF", "refs/heads/release/1.0")));
+		assertEquals("feature/foo", BranchProvider.GITHUB.resolveBranchName(env("GITHUB_REF", "refs/pull/12/merge", "GITHUB_HEAD_REF", "feature/foo")));
+		assertNull(BranchProvider.GITHUB.resolveBranchName(env("GITHUB_REF", "refs/tags/1.0.0", "GITHUB_HEAD_REF", "")));
+	}
+
+	@Test
+	public void gitlab() {
+		assertEquals("master", BranchProvider.GITLAB.resolveBranchName(env("CI_COMMIT_REF_NAME", "master")));
+		assertNull(BranchProvider.GITLAB.resolveBranchName(env("CI_COMMIT_REF_NAME", "1.0.0", "CI_COMMIT_TAG", "1.0.0")));
+	}
+
+	@Test
+	public void parse() {
+		assertEquals(Arrays.asList(BranchProvider.JENKINS, BranchProvider.GITHUB, BranchProvider.GITLAB, BranchProvider.SCM), BranchProvider.parse(BranchProvider.DEFAULT_ORDER));
+		assertEquals(Arrays.asList(BranchProvider.SCM, BranchProvider.GITLAB), BranchProvider.parse(" SCM, gitlab"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parseUnknown() {
+		BranchProvider.parse("jenkins,travis");
+	}
+
+	private static PropertyLookup env(String... keysAndValues) {
+		Properties env = new Properties();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			env.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+		}
+		return env::getProperty;
+	}
+}
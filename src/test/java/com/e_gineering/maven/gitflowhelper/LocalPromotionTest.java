@@ -0,0 +1,178 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.apache.maven.artifact.repository.MavenArtifactRepository;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class LocalPromotionTest {
+
+	private static final String CATALOG = "[artifacts]\ncom.example:app:jar:2.0\ncom.example:app:zip:dist:2.0\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void forRepositories() throws Exception {
+		File stage = folder.newFolder("stage");
+		ArtifactRepository fileStage = repository("stage", stage.toURI().toString());
+		ArtifactRepository fileRelease = repository("releases", new File(folder.getRoot(), "releases").toURI().toString());
+
+		assertNotNull(LocalPromotion.forRepositories(fileStage, fileRelease));
+		assertNull(LocalPromotion.forRepositories(fileStage, repository("releases", "https://repo.example.com/releases")));
+		assertNull(LocalPromotion.forRepositories(repository("stage", "https://repo.example.com/stage"), fileRelease));
+		assertNull(LocalPromotion.forRepositories(repository("stage", new File(folder.getRoot(), "missing").toURI().toString()), fileRelease));
+	}
+
+	@Test
+	public void promote() throws Exception {
+		File stage = folder.newFolder("stage");
+		File release = folder.newFolder("releases");
+		stage(stage, "app-2.0.jar", "jar");
+		stage(stage, "app-2.0-dist.zip", "zip");
+		stage(stage, "app-2.0.pom", "<project/>");
+		stage(stage, "app-2.0-catalog.txt", CATALOG);
+		// The stage has a checksum of its own for the jar, which is kept.
+		stage(stage, "app-2.0.jar.sha1", "staged-sha1");
+
+		List<Artifact> promoted = new LocalPromotion(stage, release).promote("com.example", "app", "2.0", new SystemStreamLog());
+
+		assertEquals(4, promoted.size());
+		for (String name : new String[]{"app-2.0.jar", "app-2.0-dist.zip", "app-2.0.pom", "app-2.0-catalog.txt"}) {
+			File promotedFile = new File(release, "com/example/app/2.0/" + name);
+			assertTrue(name, Files.isSameFile(new File(stage, "com/example/app/2.0/" + name).toPath(), promotedFile.toPath()));
+
+			String[] checksums = LocalPromotion.checksums(Files.newInputStream(promotedFile.toPath()));
+			assertEquals(name, checksums[0], read(new File(promotedFile.getPath() + ".md5")));
+			if (!name.endsWith(".jar")) {
+				assertEquals(name, checksums[1], read(new File(promotedFile.getPath() + ".sha1")));
+			}
+		}
+		assertEquals("staged-sha1", read(new File(release, "com/example/app/2.0/app-2.0.jar.sha1")));
+		assertFalse(new File(release, "com/example/app/2.0/app-2.0.jar.tmp").exists());
+
+		Metadata metadata = metadata(release);
+		assertEquals("com.example", metadata.getGroupId());
+		assertEquals(Arrays.asList("2.0"), metadata.getVersioning().getVersions());
+		assertEquals("2.0", metadata.getVersioning().getRelease());
+
+		File metadataFile = new File(release, "com/example/app/maven-metadata.xml");
+		assertEquals(LocalPromotion.checksums(Files.newInputStream(metadataFile.toPath()))[1], read(new File(metadataFile.getPath() + ".sha1")));
+	}
+
+	@Test
+	public void metadataMerged() throws Exception {
+		File stage = folder.newFolder("stage");
+		File release = folder.newFolder("releases");
+		stage(stage, "app-2.0.jar", "jar");
+		stage(stage, "app-2.0-dist.zip", "zip");
+		stage(stage, "app-2.0-catalog.txt", CATALOG);
+
+		File metadataFile = new File(release, "com/example/app/maven-metadata.xml");
+		assertTrue(metadataFile.getParentFile().mkdirs());
+		Files.write(metadataFile.toPath(), ("<metadata><groupId>com.example</groupId><artifactId>app</artifactId><versioning>"
+				+ "<latest>1.0</latest><release>1.0</release><versions><version>1.0</version></versions></versioning></metadata>").getBytes(StandardCharsets.UTF_8));
+
+		new LocalPromotion(stage, release).promote("com.example", "app", "2.0", new SystemStreamLog());
+
+		Metadata metadata = metadata(release);
+		assertEquals(Arrays.asList("1.0", "2.0"), metadata.getVersioning().getVersions());
+		assertEquals("2.0", metadata.getVersioning().getLatest());
+		assertEquals("2.0", metadata.getVersioning().getRelease());
+	}
+
+	@Test
+	public void missingArtifact() throws Exception {
+		File stage = folder.newFolder("stage");
+		File release = folder.newFolder("releases");
+		stage(stage, "app-2.0.jar", "jar");
+		stage(stage, "app-2.0-catalog.txt", CATALOG);
+
+		try {
+			new LocalPromotion(stage, release).promote("com.example", "app", "2.0", new SystemStreamLog());
+			fail("Expected the missing zip to fail the promotion");
+		} catch (FileNotFoundException fnfe) {
+			assertTrue(fnfe.getMessage(), fnfe.getMessage().contains("com.example:app:zip:dist:2.0"));
+		}
+		assertFalse(new File(release, "com/example/app/maven-metadata.xml").exists());
+	}
+
+	@Test
+	public void sizeCatalogued() throws Exception {
+		File stage = folder.newFolder("stage");
+		File release = folder.newFolder("releases");
+		stage(stage, "app-2.0.jar", "jar");
+		stage(stage, "app-2.0-catalog.txt", "[artifacts]\ncom.example:app:jar:2.0\n");
+		stage(stage, "app-2.0-catalog-checksums.txt", "[checksums]\ncom.example:app:jar:2.0 4 " + ArtifactCatalog.sha256(new File(stage, "com/example/app/2.0/app-2.0.jar")) + "\n");
+
+		try {
+			new LocalPromotion(stage, release).promote("com.example", "app", "2.0", new SystemStreamLog());
+			fail("Expected the staged jar's size not to match the catalog");
+		} catch (IOException ioe) {
+			assertTrue(ioe.getMessage(), ioe.getMessage().contains("catalogued as 4"));
+		}
+		assertFalse(new File(release, "com/example/app/2.0/app-2.0.jar").exists());
+	}
+
+	@Test
+	public void path() {
+		assertEquals("com/example/app/2.0/app-2.0-dist.zip", LocalPromotion.path(new DefaultArtifact("com.example:app:zip:dist:2.0")));
+		assertEquals("com/example/app/2.0/app-2.0.pom", LocalPromotion.path(new DefaultArtifact("com.example", "app", "", "pom", "2.0")));
+	}
+
+	@Test
+	public void checksums() throws Exception {
+		String[] checksums = LocalPromotion.checksums(new ByteArrayInputStream("abc".getBytes(StandardCharsets.UTF_8)));
+		assertEquals("900150983cd24fb0d6963f7d28e17f72", checksums[0]);
+		assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", checksums[1]);
+	}
+
+	private static void stage(File stage, String name, String content) throws Exception {
+		File file = new File(stage, "com/example/app/2.0/" + name);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(File file) throws Exception {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	private static Metadata metadata(File release) throws Exception {
+		try (InputStream in = Files.newInputStream(new File(release, "com/example/app/maven-metadata.xml").toPath())) {
+			return new MetadataXpp3Reader().read(in, false);
+		}
+	}
+
+	private static ArtifactRepository repository(String id, String url) {
+		ArtifactRepositoryPolicy policy = new ArtifactRepositoryPolicy();
+		return new MavenArtifactRepository(id, url, new DefaultRepositoryLayout(), policy, policy);
+	}
+}
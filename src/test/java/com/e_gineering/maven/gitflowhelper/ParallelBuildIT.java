@@ -0,0 +1,228 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.it.Verifier;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds a multi-module project with several threads, checking that every goal runs without thread safety warnings.
+ */
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ParallelBuildIT extends AbstractIntegrationTest {
+
+	private static final String[] MODULES = {"", "-a", "-b", "-c", "-d"};
+
+	/* The time the http staging repository takes to answer each request. */
+	private static final long REQUEST_MILLIS = 100;
+
+	@Test
+	public void developDeploysSnapshots() throws Exception {
+		Verifier verifier = createParallelVerifier("origin/develop", "4.0.0-SNAPSHOT");
+		try {
+			verifier.executeGoal("deploy");
+
+			verifier.verifyErrorFreeLog();
+			verifyThreadSafe(verifier);
+		} finally {
+			verifier.resetStreams();
+		}
+
+		verifyDeployed("snapshots", "4.0.0-SNAPSHOT");
+	}
+
+	@Test
+	public void releaseThenMasterPromotes() throws Exception {
+		Verifier verifier = createParallelVerifier("origin/release/4.1.0", "4.1.0");
+		try {
+			verifier.executeGoal("deploy");
+
+			verifier.verifyErrorFreeLog();
+			verifyThreadSafe(verifier);
+		} finally {
+			verifier.resetStreams();
+		}
+
+		verifyDeployed("test-releases", "4.1.0");
+
+		// Staged in the original catalog format, with the size and checksum of each artifact alongside.
+		File staged = new File(System.getProperty("basedir"), "target/it-repositories/test-releases/com/e-gineering/gitflow-helper-maven-plugin-parallel-stub-a/4.1.0");
+		List<String> catalogLines = Files.readAllLines(new File(staged, "gitflow-helper-maven-plugin-parallel-stub-a-4.1.0-catalog.txt").toPath());
+		Assert.assertEquals("[artifacts]", catalogLines.get(0));
+		Assert.assertEquals("com.e-gineering:gitflow-helper-maven-plugin-parallel-stub-a:jar:4.1.0", catalogLines.get(1));
+		List<String> checksumLines = Files.readAllLines(new File(staged, "gitflow-helper-maven-plugin-parallel-stub-a-4.1.0-catalog-checksums.txt").toPath());
+		Assert.assertEquals("[checksums]", checksumLines.get(0));
+		Assert.assertTrue(checksumLines.get(1), checksumLines.get(1).matches("com\\.e-gineering:gitflow-helper-maven-plugin-parallel-stub-a:jar:4\\.1\\.0 \\d+ [0-9a-f]{64}"));
+
+		verifier = createParallelVerifier("origin/master", "4.1.0");
+		try {
+			verifier.executeGoal("deploy");
+
+			verifier.verifyErrorFreeLog();
+			verifyThreadSafe(verifier);
+		} finally {
+			verifier.resetStreams();
+		}
+
+		verifyDeployed("releases", "4.1.0");
+
+		// The staged artifacts were kept in the promotion cache for the next promotion.
+		File cached = new File(System.getProperty("basedir"), "target/it-promotion-cache/entries/com/e-gineering/gitflow-helper-maven-plugin-parallel-stub-a/4.1.0");
+		Assert.assertTrue(cached.getPath(), cached.isDirectory() && cached.list().length > 0);
+	}
+
+	@Test
+	public void masterPromotesOnTheFileSystem() throws Exception {
+		Verifier verifier = createParallelVerifier("origin/release/4.2.0", "4.2.0");
+		try {
+			verifier.executeGoal("deploy");
+
+			verifier.verifyErrorFreeLog();
+		} finally {
+			verifier.resetStreams();
+		}
+
+		verifier = createParallelVerifier("origin/master", "4.2.0");
+		verifier.getCliOptions().add("-DlocalPromotion=true");
+		try {
+			verifier.executeGoal("deploy");
+
+			verifier.verifyErrorFreeLog();
+			verifyThreadSafe(verifier);
+			verifier.verifyTextInLog("to releaseDeploymentRepository [releases] on the file system");
+		} finally {
+			verifier.resetStreams();
+		}
+
+		verifyDeployed("releases", "4.2.0");
+		for (String module : MODULES) {
+			File metadata = new File(System.getProperty("basedir"), "target/it-repositories/releases/com/e-gineering/gitflow-helper-maven-plugin-parallel-stub" + module + "/maven-metadata.xml");
+			Assert.assertTrue(metadata.getPath(), metadata.isFile());
+		}
+	}
+
+	/**
+	 * Promotes module-a's nine artifacts one at a time, then four at a time, through Maven's own repository system and
+	 * a session shared between the resolutions. The staging repository is served over http, with a fixed delay for
+	 * every request, so resolving concurrently must take well under half the time.
+	 */
+	@Test
+	public void concurrentPromotionIsFaster() throws Exception {
+		Verifier verifier = createParallelVerifier("origin/release/4.3.0", "4.3.0");
+		verifier.getCliOptions().add("-Dstub.manyArtifacts");
+		try {
+			verifier.executeGoal("deploy");
+
+			verifier.verifyErrorFreeLog();
+		} finally {
+			verifier.resetStreams();
+		}
+
+		HttpServer stage = serve(new File(System.getProperty("basedir"), "target/it-repositories/test-releases"));
+		try {
+			String url = "http://127.0.0.1:" + stage.getAddress().getPort();
+			long serial = promotionMillis(url, 1);
+			long concurrent = promotionMillis(url, 4);
+
+			Assert.assertTrue("one at a time: " + serial + "ms, four at a time: " + concurrent + "ms", concurrent * 2 < serial);
+		} finally {
+			stage.stop(0);
+		}
+	}
+
+	/**
+	 * @return The time module-a took to resolve its nine catalogued artifacts.
+	 */
+	private long promotionMillis(String stageUrl, int concurrency) throws Exception {
+		Verifier verifier = createParallelVerifier("origin/master", "4.3.0");
+		// Resolved from the repository every time, rather than the promotion cache.
+		verifier.getCliOptions().add("-DpromotionCacheSize=0");
+		verifier.getCliOptions().add("-DpromotionConcurrency=" + concurrency);
+		verifier.getCliOptions().add("-Dstub.manyArtifacts");
+		verifier.setSystemProperty("stub.stage.url", stageUrl);
+		verifier.setLogFileName(getClass().getSimpleName() + "_" + name.getMethodName() + "-" + concurrency + "-log.txt");
+		try {
+			verifier.executeGoal("deploy");
+
+			verifier.verifyErrorFreeLog();
+		} finally {
+			verifier.resetStreams();
+		}
+
+		Pattern resolved = Pattern.compile(".*Resolved 9 catalogued artifacts in (\\d+)ms, " + concurrency + " at a time\\.");
+		for (String line : verifier.loadFile(verifier.getBasedir(), verifier.getLogFileName(), false)) {
+			Matcher m = resolved.matcher(line);
+			if (m.matches()) {
+				return Long.parseLong(m.group(1));
+			}
+		}
+		throw new AssertionError("module-a didn't promote its nine artifacts");
+	}
+
+	/**
+	 * Serves the files of a repository over http, as a remote repository manager would, taking a fixed time to answer
+	 * every request.
+	 */
+	private static HttpServer serve(File repository) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/", exchange -> {
+			try {
+				Thread.sleep(REQUEST_MILLIS);
+
+				File file = new File(repository, exchange.getRequestURI().getPath()).getCanonicalFile();
+				if (!file.toPath().startsWith(repository.getCanonicalFile().toPath()) || !file.isFile()) {
+					exchange.sendResponseHeaders(404, -1);
+				} else if ("HEAD".equals(exchange.getRequestMethod())) {
+					exchange.getResponseHeaders().set("Content-Length", Long.toString(file.length()));
+					exchange.sendResponseHeaders(200, -1);
+				} else {
+					exchange.sendResponseHeaders(200, file.length());
+					try (OutputStream body = exchange.getResponseBody()) {
+						Files.copy(file.toPath(), body);
+					}
+				}
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			} finally {
+				exchange.close();
+			}
+		});
+		server.start();
+		return server;
+	}
+
+	private Verifier createParallelVerifier(String gitBranch, String projectVersion) throws Exception {
+		Verifier verifier = createVerifier("/project-parallel-stub", gitBranch, projectVersion);
+		verifier.getCliOptions().add("-T");
+		verifier.getCliOptions().add("4");
+		return verifier;
+	}
+
+	private static void verifyThreadSafe(Verifier verifier) throws Exception {
+		List<String> lines = verifier.loadFile(verifier.getBasedir(), verifier.getLogFileName(), false);
+		for (String line : lines) {
+			Assert.assertFalse(line, line.contains("[WARNING]") && line.contains("com.e-gineering:gitflow-helper-maven-plugin:"));
+		}
+	}
+
+	private static void verifyDeployed(String repository, String version) {
+		for (String module : MODULES) {
+			File artifactDir = new File(System.getProperty("basedir"), "target/it-repositories/" + repository + "/com/e-gineering/gitflow-helper-maven-plugin-parallel-stub" + module + "/" + version);
+			Assert.assertTrue(artifactDir.getPath(), artifactDir.isDirectory() && artifactDir.list().length > 0);
+		}
+	}
+}
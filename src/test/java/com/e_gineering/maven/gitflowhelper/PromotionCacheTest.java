@@ -0,0 +1,335 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.transfer.ChecksumFailureException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class PromotionCacheTest {
+
+	private static final DefaultArtifact ARTIFACT = new DefaultArtifact("com.example:app:jar:2.0");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void cachesVerifiedDownloads() throws Exception {
+		File remote = remote("content", null);
+		PromotionCache cache = new PromotionCache(folder.newFolder("cache"), Long.MAX_VALUE);
+		AtomicInteger downloads = new AtomicInteger();
+
+		File first = resolve(cache, remote, downloads);
+		assertEquals(1, downloads.get());
+		assertEquals("app-2.0.jar", first.getName());
+		assertTrue(first.getPath(), first.getPath().contains("entries" + File.separator + "com" + File.separator + "example"));
+		assertEquals("content", read(first));
+
+		// Another build finds it in the cache, even once the first build's work directory is gone.
+		File second = resolve(cache, remote, downloads);
+		assertEquals(1, downloads.get());
+		assertEquals(first, second);
+		assertEquals("content", read(second));
+	}
+
+	@Test
+	public void redeployedArtifactIsDownloadedAgain() throws Exception {
+		File remote = remote("content", null);
+		PromotionCache cache = new PromotionCache(folder.newFolder("cache"), Long.MAX_VALUE);
+		AtomicInteger downloads = new AtomicInteger();
+
+		File first = resolve(cache, remote, downloads);
+		remote("redeployed", remote);
+		File second = resolve(cache, remote, downloads);
+
+		assertEquals(2, downloads.get());
+		assertNotEquals(first, second);
+		assertEquals("content", read(first));
+		assertEquals("redeployed", read(second));
+	}
+
+	@Test
+	public void mismatchedDownloadIsNotCached() throws Exception {
+		File remote = remote("content", null);
+		Files.write(new File(remote, "app-2.0.jar.sha1").toPath(), "0123456789abcdef0123456789abcdef01234567".getBytes(StandardCharsets.UTF_8));
+		File directory = folder.newFolder("cache");
+		PromotionCache cache = new PromotionCache(directory, Long.MAX_VALUE);
+		AtomicInteger downloads = new AtomicInteger();
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				resolve(cache, remote, downloads);
+				fail("Expected the download not to match its checksum");
+			} catch (ArtifactResolutionException are) {
+				assertTrue(are.getCause() instanceof ChecksumFailureException);
+			}
+		}
+		assertEquals(2, downloads.get());
+		assertFalse(new File(directory, "entries").exists());
+	}
+
+	@Test
+	public void modifiedEntryIsEvicted() throws Exception {
+		File remote = remote("content", null);
+		PromotionCache cache = new PromotionCache(folder.newFolder("cache"), Long.MAX_VALUE);
+		AtomicInteger downloads = new AtomicInteger();
+
+		File first = resolve(cache, remote, downloads);
+		// ie: rewritten through a hard link to it.
+		Files.write(first.toPath(), "tampered".getBytes(StandardCharsets.UTF_8));
+
+		File second = resolve(cache, remote, downloads);
+
+		assertEquals(2, downloads.get());
+		assertEquals(first, second);
+		assertEquals("content", read(second));
+	}
+
+	@Test
+	public void modifiedCataloguedEntryIsEvicted() throws Exception {
+		File remote = remote("content", null);
+		ArtifactCatalog.Entry entry = catalogued(new File(remote, "app-2.0.jar"));
+		PromotionCache cache = new PromotionCache(folder.newFolder("cache"), Long.MAX_VALUE);
+		AtomicInteger downloads = new AtomicInteger();
+
+		File first = resolve(cache, remote, downloads, entry);
+		Files.write(first.toPath(), "CONTENT".getBytes(StandardCharsets.UTF_8));
+		File second = resolve(cache, remote, downloads, entry);
+		Files.write(second.toPath(), "content, and then some".getBytes(StandardCharsets.UTF_8));
+		File third = resolve(cache, remote, downloads, entry);
+
+		assertEquals(3, downloads.get());
+		assertEquals("content", read(third));
+	}
+
+	@Test
+	public void withoutChecksumIsNotCached() throws Exception {
+		File remote = remote("content", null);
+		assertTrue(new File(remote, "app-2.0.jar.sha1").delete());
+		PromotionCache cache = new PromotionCache(folder.newFolder("cache"), Long.MAX_VALUE);
+		AtomicInteger downloads = new AtomicInteger();
+
+		assertEquals("content", read(resolve(cache, remote, downloads)));
+		resolve(cache, remote, downloads);
+		assertEquals(2, downloads.get());
+	}
+
+	@Test
+	public void keyedByCataloguedChecksum() throws Exception {
+		File remote = remote("content", null);
+		ArtifactCatalog.Entry entry = catalogued(new File(remote, "app-2.0.jar"));
+		// The catalogued checksum is used instead of the remote repository's.
+		assertTrue(new File(remote, "app-2.0.jar.sha1").delete());
+		PromotionCache cache = new PromotionCache(folder.newFolder("cache"), Long.MAX_VALUE);
+		AtomicInteger downloads = new AtomicInteger();
+
+		File first = resolve(cache, remote, downloads, entry);
+		File second = resolve(cache, remote, downloads, entry);
+
+		assertEquals(1, downloads.get());
+		assertEquals(first, second);
+		assertEquals(entry.getSha256(), first.getParentFile().getName());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() throws Exception {
+		PromotionCache cache = new PromotionCache(folder.newFolder("cache"), 2048);
+		long now = System.currentTimeMillis();
+		File oldest = cached(cache, "1.0", now - TimeUnit.HOURS.toMillis(3));
+		File older = cached(cache, "1.1", now - TimeUnit.HOURS.toMillis(2));
+		File old = cached(cache, "1.2", now - TimeUnit.HOURS.toMillis(1));
+
+		cache.evict(new SystemStreamLog());
+
+		assertFalse(oldest.exists());
+		assertFalse(oldest.getParentFile().exists());
+		assertTrue(older.exists());
+		assertTrue(old.exists());
+	}
+
+	@Test
+	public void recentlyUsedIsNotEvicted() throws Exception {
+		PromotionCache cache = new PromotionCache(folder.newFolder("cache"), 512);
+		File first = cached(cache, "1.0", System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1));
+		File second = cached(cache, "1.1", System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2));
+
+		// Using the older entry makes the other the least recently used.
+		assertEquals(second, cache.get(new DefaultArtifact("com.example:app:jar:1.1"), sha1(second), 1024, new SystemStreamLog()));
+		cache.evict(new SystemStreamLog());
+
+		assertFalse(first.exists());
+		// Over the size, but in use.
+		assertTrue(second.exists());
+	}
+
+	@Test
+	public void notEvictedWhileEntriesAreAdded() throws Exception {
+		PromotionCache cache = new PromotionCache(folder.newFolder("cache"), 512);
+		File oldest = cached(cache, "1.0", System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2));
+
+		try (Closeable shared = cache.lockShared()) {
+			// Held by another thread adding an entry.
+			FutureTask<Void> evict = new FutureTask<>(() -> {
+				cache.evict(new SystemStreamLog());
+				return null;
+			});
+			new Thread(evict).start();
+			evict.get(30, TimeUnit.SECONDS);
+			assertTrue(oldest.exists());
+		}
+
+		cache.evict(new SystemStreamLog());
+		assertFalse(oldest.exists());
+	}
+
+	@Test
+	public void cleanupRemovesWorkDirectory() throws Exception {
+		PromotionCache cache = new PromotionCache(folder.newFolder("cache"), Long.MAX_VALUE);
+		File work = cache.newWorkDirectory();
+		Files.write(new File(work, "app-2.0.jar").toPath(), "content".getBytes(StandardCharsets.UTF_8));
+
+		cache.cleanup(work, new SystemStreamLog());
+
+		assertFalse(work.exists());
+	}
+
+	@Test
+	public void readChecksum() throws Exception {
+		File file = folder.newFile();
+		Files.write(file.toPath(), "A9993E364706816ABA3E25717850C26C9CD0D89D  app-2.0.jar\n".getBytes(StandardCharsets.UTF_8));
+		assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", PromotionCache.readChecksum(file));
+
+		Files.write(file.toPath(), "../../../etc".getBytes(StandardCharsets.UTF_8));
+		try {
+			PromotionCache.readChecksum(file);
+			fail("Expected a checksum");
+		} catch (IOException expected) {
+		}
+	}
+
+	@Test
+	public void getMissing() throws Exception {
+		PromotionCache cache = new PromotionCache(folder.newFolder("cache"), Long.MAX_VALUE);
+		assertNull(cache.get(ARTIFACT, "a9993e364706816aba3e25717850c26c9cd0d89d", -1, new SystemStreamLog()));
+	}
+
+	@Test
+	public void contains() throws Exception {
+		File directory = folder.newFolder("cache");
+		PromotionCache cache = new PromotionCache(directory, Long.MAX_VALUE);
+
+		assertTrue(cache.contains(new File(directory, "entries/com/example/app/2.0/app-2.0.jar")));
+		assertFalse(cache.contains(new File(directory, "../app-2.0.jar")));
+		assertFalse(cache.contains(folder.newFile("app-2.0.jar")));
+	}
+
+	/**
+	 * Writes the artifact, and its checksum, to a directory standing in for a remote repository.
+	 */
+	private File remote(String content, File remote) throws Exception {
+		if (remote == null) {
+			remote = folder.newFolder();
+		}
+		File jar = new File(remote, "app-2.0.jar");
+		Files.write(jar.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		Files.write(new File(remote, "app-2.0.jar.sha1").toPath(), sha1(jar).getBytes(StandardCharsets.UTF_8));
+		return remote;
+	}
+
+	/**
+	 * Resolves the artifact through the cache, as a build would: "downloading" into a work directory which is removed
+	 * afterwards.
+	 */
+	private File resolve(PromotionCache cache, File remote, AtomicInteger downloads) throws Exception {
+		return resolve(cache, remote, downloads, null);
+	}
+
+	private File resolve(PromotionCache cache, File remote, AtomicInteger downloads, ArtifactCatalog.Entry entry) throws Exception {
+		File work = cache.newWorkDirectory();
+		ArtifactPipeline.Resolver resolver = cache.resolver(download(remote, work, null), download(remote, work, downloads), artifact -> entry, new SystemStreamLog());
+
+		try {
+			ArtifactResult result = resolver.resolve(new ArtifactRequest(ARTIFACT, Collections.emptyList(), null));
+			File file = result.getArtifact().getFile();
+			if (file.getPath().startsWith(work.getPath())) {
+				// Not cached, so it goes with the work directory.
+				File kept = folder.newFile();
+				Files.copy(file.toPath(), kept.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				file = kept;
+			}
+			return file;
+		} finally {
+			cache.cleanup(work, new SystemStreamLog());
+		}
+	}
+
+	private static ArtifactCatalog.Entry catalogued(File file) throws IOException {
+		return new ArtifactCatalog.Entry(ARTIFACT.toString(), file.length(), ArtifactCatalog.sha256(file));
+	}
+
+	private static ArtifactPipeline.Resolver download(File remote, File work, AtomicInteger downloads) {
+		return request -> {
+			File source = new File(remote, "app-2.0." + request.getArtifact().getExtension());
+			if (!source.isFile()) {
+				throw new ArtifactResolutionException(Collections.emptyList(), "not found", new ArtifactNotFoundException(request.getArtifact(), null));
+			}
+			if (downloads != null) {
+				downloads.incrementAndGet();
+			}
+			File target = new File(work, source.getName());
+			try {
+				Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException ioe) {
+				throw new IllegalStateException(ioe);
+			}
+			ArtifactResult result = new ArtifactResult(request);
+			result.setArtifact(request.getArtifact().setFile(target));
+			return result;
+		};
+	}
+
+	/**
+	 * Puts a 1KB version of the artifact in the cache, last used at the given time.
+	 */
+	private File cached(PromotionCache cache, String version, long lastUsed) throws Exception {
+		File download = folder.newFile();
+		Files.write(download.toPath(), new byte[1024]);
+		File entry = cache.put(new DefaultArtifact("com.example:app:jar:" + version), sha1(download), download);
+		assertTrue(entry.setLastModified(lastUsed));
+		return entry;
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	private static String sha1(File file) throws IOException {
+		return LocalPromotion.checksums(Files.newInputStream(file.toPath()))[1];
+	}
+}
@@ -0,0 +1,132 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import com.e_gineering.maven.gitflowhelper.git.GitDirectory;
+import com.e_gineering.maven.gitflowhelper.git.GitProcesses;
+import com.e_gineering.maven.gitflowhelper.git.HeadState;
+import org.apache.maven.model.Scm;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.scm.manager.BasicScmManager;
+import org.apache.maven.scm.provider.git.gitexe.GitExeScmProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ScmUtilsTest {
+
+	private static final String SHA_A = "1111111111111111111111111111111111111111";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File root;
+	private File cacheFile;
+	private GitProcesses gitProcesses;
+
+	@Before
+	public void setUp() throws Exception {
+		root = folder.newFolder("repo");
+		write(new File(root, ".git/HEAD"), "ref: refs/heads/feature/foo\n");
+		write(new File(root, ".git/refs/heads/feature/foo"), SHA_A + "\n");
+		write(new File(root, ".git/refs/heads/release/1.0"), SHA_A + "\n");
+		cacheFile = new File(folder.getRoot(), "branch-cache.properties");
+		gitProcesses = new GitProcesses();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		gitProcesses.close();
+	}
+
+	@Test
+	public void prefetchedBranchIsCached() throws Exception {
+		Map<File, Future<HeadState>> prefetched = prefetch();
+
+		GitBranchInfo info = scmUtils().resolveBranchInfo(null, gitProcesses, new BranchCache(cacheFile), prefetched);
+
+		assertEquals("feature/foo", info.getName());
+		assertEquals("feature/foo", cachedBranch());
+	}
+
+	@Test
+	public void changedSincePrefetched() throws Exception {
+		Map<File, Future<HeadState>> prefetched = prefetch();
+		write(new File(root, ".git/HEAD"), "ref: refs/heads/release/1.0\n");
+
+		GitBranchInfo info = scmUtils().resolveBranchInfo(null, gitProcesses, new BranchCache(cacheFile), prefetched);
+
+		assertEquals("release/1.0", info.getName());
+		assertEquals("release/1.0", cachedBranch());
+	}
+
+	@Test
+	public void prefetchedDetachedHeadIsNotCached() throws Exception {
+		write(new File(root, ".git/HEAD"), SHA_A + "\n");
+		Files.delete(new File(root, ".git/refs/heads/feature/foo").toPath());
+		Map<File, Future<HeadState>> prefetched = prefetch();
+		Files.delete(new File(root, ".git/refs/heads/release/1.0").toPath());
+
+		GitBranchInfo info = scmUtils().resolveBranchInfo(null, gitProcesses, new BranchCache(cacheFile), prefetched);
+
+		// The branches were listed before the refs were checked, so they're used but not cached.
+		assertEquals("release/1.0", info.getName());
+		assertFalse(cacheFile.exists());
+	}
+
+	/**
+	 * Reads the state of HEAD as the build extension does, before the project is read.
+	 */
+	private Map<File, Future<HeadState>> prefetch() throws IOException {
+		GitDirectory gitDirectory = GitDirectory.locate(root);
+		FutureTask<HeadState> task = new FutureTask<>(() -> HeadState.read(gitDirectory));
+		task.run();
+		return Collections.singletonMap(gitDirectory.getWorkTree(), task);
+	}
+
+	private ScmUtils scmUtils() {
+		Scm scm = new Scm();
+		scm.setConnection("scm:git:https://example.com/repo.git");
+		MavenProject project = new MavenProject();
+		project.setFile(new File(root, "pom.xml"));
+		project.setScm(scm);
+
+		BasicScmManager scmManager = new BasicScmManager();
+		scmManager.setScmProvider("git", new GitExeScmProvider());
+
+		return new ScmUtils(key -> null, scmManager, project, new SystemStreamLog(),
+				"(origin/)?master", "(origin/)?support/(.*)", "(origin/)?release/(.*)", "(origin/)?hotfix/(.*)",
+				"(origin/)?develop", Collections.emptyList(), Collections.singletonList(BranchProvider.SCM), 30);
+	}
+
+	private String cachedBranch() throws IOException {
+		Properties entries = new Properties();
+		try (InputStream in = Files.newInputStream(cacheFile.toPath())) {
+			entries.load(in);
+		}
+		return entries.getProperty(GitDirectory.locate(root).getWorkTree().getAbsolutePath() + ".branch");
+	}
+
+	private static void write(File file, String content) throws IOException {
+		Files.createDirectories(file.getParentFile().toPath());
+		Files.write(file.toPath(), content.getBytes(UTF_8));
+	}
+}
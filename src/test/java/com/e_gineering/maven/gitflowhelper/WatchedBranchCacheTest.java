@@ -0,0 +1,134 @@
+package com.e_gineering.maven.gitflowhelper;
+
+import com.e_gineering.maven.gitflowhelper.git.GitDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class WatchedBranchCacheTest {
+
+	private static final String SHA_A = "1111111111111111111111111111111111111111";
+	private static final String SHA_B = "2222222222222222222222222222222222222222";
+	private static final String PATTERNS = "patterns";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private WatchedBranchCache cache;
+	private File root;
+
+	@Before
+	public void setUp() throws Exception {
+		cache = new WatchedBranchCache();
+		root = folder.newFolder("repo");
+		write(new File(root, ".git/HEAD"), "ref: refs/heads/develop\n");
+		write(new File(root, ".git/refs/heads/develop"), SHA_A + "\n");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		cache.close();
+	}
+
+	@Test
+	public void checkoutInvalidates() throws Exception {
+		assertEquals("develop", build());
+		assertEquals("develop", cache.get(root, PATTERNS));
+		assertNull(cache.get(root, "other patterns"));
+
+		write(new File(root, ".git/refs/heads/release/1.0"), SHA_A + "\n");
+		awaitInvalidation();
+		assertEquals("develop", build());
+
+		write(new File(root, ".git/HEAD"), "ref: refs/heads/release/1.0\n");
+		awaitInvalidation();
+		assertEquals("release/1.0", build());
+		assertEquals("release/1.0", awaitCached());
+	}
+
+	@Test
+	public void newRemoteBranchDirectoriesAreWatched() throws Exception {
+		write(new File(root, ".git/HEAD"), SHA_A + "\n");
+		assertEquals("develop", build());
+
+		// A fetch creating refs/remotes/origin/hotfix/...
+		write(new File(root, ".git/refs/remotes/origin/hotfix/1.0.1"), SHA_B + "\n");
+		awaitInvalidation();
+		assertEquals("develop", build());
+
+		// ...which is then updated in place.
+		write(new File(root, ".git/refs/remotes/origin/hotfix/1.0.1"), SHA_A + "\n");
+		awaitInvalidation();
+	}
+
+	@Test
+	public void unrelatedChangesDontInvalidate() throws Exception {
+		assertEquals("develop", build());
+
+		write(new File(root, ".git/index"), "staged");
+		write(new File(root, ".git/logs/HEAD"), "reflog");
+		write(new File(root, "pom.xml"), "<project/>");
+		Thread.sleep(500);
+
+		assertEquals("develop", cache.get(root, PATTERNS));
+	}
+
+	/**
+	 * Resolves the branch the way ScmUtils does, caching the result.
+	 */
+	private String build() throws IOException {
+		GitDirectory gitDirectory = GitDirectory.locate(root);
+		WatchedBranchCache.Snapshot snapshot = cache.watch(gitDirectory);
+		String branchName = gitDirectory.getCurrentBranch();
+		if (branchName == null) {
+			branchName = gitDirectory.branchesFor(gitDirectory.resolveHead()).iterator().next();
+		}
+		cache.put(root, PATTERNS, snapshot, branchName);
+		return branchName;
+	}
+
+	private void awaitInvalidation() throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (cache.get(root, PATTERNS) != null) {
+			assertTrue("The cached branch name was not invalidated", System.nanoTime() < deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * Rewriting a file may raise more than one event, so a late one can still discard what was just built. Builds again
+	 * until every event has been processed and the name stays cached.
+	 */
+	private String awaitCached() throws Exception {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (true) {
+			Thread.sleep(100);
+			String cached = cache.get(root, PATTERNS);
+			if (cached != null) {
+				return cached;
+			}
+			assertTrue("The branch name was never cached", System.nanoTime() < deadline);
+			build();
+		}
+	}
+
+	private static void write(File file, String content) throws IOException {
+		Files.createDirectories(file.getParentFile().toPath());
+		Files.write(file.toPath(), content.getBytes(UTF_8));
+	}
+}
@@ -0,0 +1,118 @@
+package com.e_gineering.maven.gitflowhelper.git;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class GitDirectoryTest {
+
+	private static final String SHA_A = "1111111111111111111111111111111111111111";
+	private static final String SHA_B = "2222222222222222222222222222222222222222";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void currentBranchFromSubdirectory() throws Exception {
+		File root = folder.newFolder("repo");
+		write(new File(root, ".git/HEAD"), "ref: refs/heads/release/1.0.0\n");
+		File module = new File(root, "module/submodule");
+		assertTrue(module.mkdirs());
+
+		GitDirectory gitDirectory = GitDirectory.locate(module);
+
+		assertEquals(root.getAbsoluteFile(), gitDirectory.getWorkTree());
+		assertEquals("release/1.0.0", gitDirectory.getCurrentBranch());
+	}
+
+	@Test
+	public void notInWorkingCopy() throws Exception {
+		assertNull(GitDirectory.locate(folder.newFolder("plain")));
+	}
+
+	@Test
+	public void detachedHeadResolvesLooseAndPackedBranches() throws Exception {
+		File root = folder.newFolder("repo");
+		write(new File(root, ".git/HEAD"), SHA_A + "\n");
+		write(new File(root, ".git/packed-refs"),
+				"# pack-refs with: peeled fully-peeled sorted \n" +
+				SHA_A + " refs/remotes/origin/master\n" +
+				SHA_B + " refs/remotes/origin/develop\n" +
+				SHA_A + " refs/tags/1.0.0\n" +
+				"^" + SHA_B + "\n" +
+				SHA_B + " refs/heads/release/1.0.0\n");
+		// Loose refs take precedence over packed ones.
+		write(new File(root, ".git/refs/heads/release/1.0.0"), SHA_A + "\n");
+		write(new File(root, ".git/refs/heads/feature/x.lock"), SHA_A + "\n");
+
+		GitDirectory gitDirectory = GitDirectory.locate(root);
+
+		assertNull(gitDirectory.getCurrentBranch());
+		assertEquals(SHA_A, gitDirectory.resolveHead());
+		assertEquals(new HashSet<>(Arrays.asList("master", "release/1.0.0")), gitDirectory.branchesFor(SHA_A));
+	}
+
+	@Test
+	public void linkedWorktreeUsesCommonDir() throws Exception {
+		File main = folder.newFolder("main");
+		write(new File(main, ".git/HEAD"), "ref: refs/heads/develop\n");
+		write(new File(main, ".git/refs/remotes/origin/hotfix/1.0.1"), SHA_B + "\n");
+		write(new File(main, ".git/worktrees/linked/HEAD"), SHA_B + "\n");
+		write(new File(main, ".git/worktrees/linked/commondir"), "../..\n");
+
+		File linked = folder.newFolder("linked");
+		write(new File(linked, ".git"), "gitdir: " + new File(main, ".git/worktrees/linked").getAbsolutePath() + "\n");
+
+		GitDirectory gitDirectory = GitDirectory.locate(linked);
+
+		assertNull(gitDirectory.getCurrentBranch());
+		assertEquals(new File(main, ".git").getCanonicalFile(), gitDirectory.getCommonDir().getCanonicalFile());
+		assertEquals(new HashSet<>(Arrays.asList("hotfix/1.0.1")), gitDirectory.branchesFor(gitDirectory.resolveHead()));
+	}
+
+	@Test
+	public void symbolicRemoteHeadIsFollowed() throws Exception {
+		File root = folder.newFolder("repo");
+		write(new File(root, ".git/HEAD"), SHA_A + "\n");
+		write(new File(root, ".git/refs/remotes/origin/master"), SHA_A + "\n");
+		write(new File(root, ".git/refs/remotes/origin/HEAD"), "ref: refs/remotes/origin/master\n");
+
+		assertEquals(new HashSet<>(Arrays.asList("master", "HEAD")), GitDirectory.locate(root).branchesFor(SHA_A));
+	}
+
+	@Test(expected = GitReadException.class)
+	public void reftableIsUnsupported() throws Exception {
+		File root = folder.newFolder("repo");
+		write(new File(root, ".git/HEAD"), "ref: refs/heads/.invalid\n");
+		assertTrue(new File(root, ".git/reftable").mkdirs());
+
+		GitDirectory.locate(root);
+	}
+
+	@Test(expected = GitReadException.class)
+	public void unrecognizedHead() throws Exception {
+		File root = folder.newFolder("repo");
+		write(new File(root, ".git/HEAD"), "garbage\n");
+
+		GitDirectory.locate(root).getCurrentBranch();
+	}
+
+	private static void write(final File file, final String content) throws IOException {
+		Files.createDirectories(file.getParentFile().toPath());
+		Files.write(file.toPath(), content.getBytes(UTF_8));
+	}
+}
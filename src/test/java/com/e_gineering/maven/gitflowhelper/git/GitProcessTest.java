@@ -0,0 +1,170 @@
+package com.e_gineering.maven.gitflowhelper.git;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class GitProcessTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File repo;
+
+	@Before
+	public void initRepository() throws Exception {
+		repo = folder.newFolder("repo");
+		assumeTrue("git is not available", git("init", "-q") == 0);
+		git("-c", "user.name=test", "-c", "user.email=test@example.com", "commit", "-q", "--allow-empty", "-m", "initial");
+		git("branch", "-M", "develop");
+		git("branch", "release/1.0.0");
+	}
+
+	@Test
+	public void currentBranch() throws Exception {
+		try (GitProcess git = new GitProcess(repo, 30000)) {
+			assertEquals("develop", git.getCurrentBranch());
+		}
+	}
+
+	@Test
+	public void sharedUntilClosed() throws Exception {
+		GitProcesses gitProcesses = new GitProcesses();
+		try {
+			GitProcess git = gitProcesses.forDirectory(repo, 30000);
+			assertSame(git, gitProcesses.forDirectory(repo, 30000));
+			assertEquals("develop", git.getCurrentBranch());
+
+			gitProcesses.close();
+
+			// Started (and stopped at exit) again, should the same processes be used after being closed.
+			git = gitProcesses.forDirectory(repo, 30000);
+			assertEquals("develop", git.getCurrentBranch());
+		} finally {
+			gitProcesses.close();
+		}
+	}
+
+	@Test
+	public void detachedHead() throws Exception {
+		git("checkout", "-q", "--detach");
+
+		try (GitProcess git = new GitProcess(repo, 30000)) {
+			assertNull(git.getCurrentBranch());
+
+			String sha1 = git.revParse("HEAD");
+			assertEquals(sha1, git.revParse("develop"));
+			assertEquals(new HashSet<>(Arrays.asList("develop", "release/1.0.0")), git.branchesFor(sha1));
+			assertEquals(Collections.emptySet(), git.branchesFor("0000000000000000000000000000000000000000"));
+		}
+	}
+
+	@Test
+	public void unbornBranch() throws Exception {
+		repo = folder.newFolder("unborn");
+		git("init", "-q");
+		git("symbolic-ref", "HEAD", "refs/heads/feature/new");
+
+		try (GitProcess git = new GitProcess(repo, 30000)) {
+			assertEquals("feature/new", git.getCurrentBranch());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void unknownRevision() throws Exception {
+		try (GitProcess git = new GitProcess(repo, 30000)) {
+			git.revParse("no-such-branch");
+		}
+	}
+
+	@Test
+	public void catFileWarningsAreNotReplies() throws Exception {
+		File noisyGit = folder.newFile("noisy-git");
+		Files.write(noisyGit.toPath(), "#!/bin/sh\nif [ \"$1\" = cat-file ]; then echo 'warning: noisy' >&2; fi\nexec git \"$@\"\n".getBytes(UTF_8));
+		assumeTrue("Requires a shell", noisyGit.setExecutable(true) && new File("/bin/sh").canExecute());
+
+		try (GitProcess git = new GitProcess(repo, 30000, noisyGit.getAbsolutePath())) {
+			String sha1 = git.revParse("HEAD");
+			assertEquals(sha1, git.revParse("develop"));
+			assertEquals(sha1, git.revParse("release/1.0.0"));
+		}
+	}
+
+	@Test
+	public void stalledGitIsKilled() throws Exception {
+		File stalledGit = folder.newFile("stalled-git");
+		Files.write(stalledGit.toPath(), "#!/bin/sh\nexec sleep 60\n".getBytes(UTF_8));
+		assumeTrue("Requires a shell", stalledGit.setExecutable(true) && new File("/bin/sh").canExecute());
+
+		try (GitProcess git = new GitProcess(repo, 200, stalledGit.getAbsolutePath())) {
+			long start = System.nanoTime();
+			try {
+				git.getCurrentBranch();
+				fail("Expected a timeout");
+			} catch (IOException expected) {
+				assertTrue(expected.getMessage(), expected.getMessage().contains("did not complete within 200ms"));
+			}
+			assertTrue("Waited too long for git", System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+
+			// Every later query fails at once, rather than waiting out another timeout.
+			start = System.nanoTime();
+			try {
+				git.revParse("HEAD");
+				fail("Expected a timeout");
+			} catch (IOException expected) {
+				assertTrue(expected.getMessage(), expected.getMessage().contains("did not complete within 200ms"));
+			}
+			assertTrue("Waited for git after a timeout", System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(200));
+		}
+	}
+
+	@Test
+	public void stalledCatFileIsKilled() throws Exception {
+		File stalledGit = folder.newFile("stalled-git");
+		Files.write(stalledGit.toPath(), "#!/bin/sh\nexec sleep 60\n".getBytes(UTF_8));
+		assumeTrue("Requires a shell", stalledGit.setExecutable(true) && new File("/bin/sh").canExecute());
+
+		try (GitProcess git = new GitProcess(repo, 200, stalledGit.getAbsolutePath())) {
+			long start = System.nanoTime();
+			try {
+				git.revParse("HEAD");
+				fail("Expected a timeout");
+			} catch (IOException expected) {
+				assertTrue(expected.getMessage(), expected.getMessage().contains("git cat-file did not complete within 200ms"));
+			}
+			assertTrue("Waited too long for git", System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+		}
+	}
+
+	private int git(final String... arguments) throws Exception {
+		String[] command = new String[arguments.length + 1];
+		command[0] = "git";
+		System.arraycopy(arguments, 0, command, 1, arguments.length);
+		try {
+			return new ProcessBuilder(command).directory(repo).inheritIO().start().waitFor();
+		} catch (IOException ioe) {
+			return -1;
+		}
+	}
+}
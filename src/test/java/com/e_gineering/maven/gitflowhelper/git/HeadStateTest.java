@@ -0,0 +1,60 @@
+package com.e_gineering.maven.gitflowhelper.git;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class HeadStateTest {
+
+	private static final String SHA_A = "1111111111111111111111111111111111111111";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void checkedOutBranch() throws Exception {
+		File root = folder.newFolder("repo");
+		write(new File(root, ".git/HEAD"), "ref: refs/heads/hotfix/1.0.1\n");
+
+		HeadState head = HeadState.read(GitDirectory.locate(root));
+
+		assertEquals("hotfix/1.0.1", head.getBranch());
+		assertEquals("ref: refs/heads/hotfix/1.0.1", head.getHead());
+		assertNull(head.getSha1());
+		assertTrue(head.getBranches().isEmpty());
+	}
+
+	@Test
+	public void detachedHead() throws Exception {
+		File root = folder.newFolder("repo");
+		write(new File(root, ".git/HEAD"), SHA_A + "\n");
+		write(new File(root, ".git/refs/remotes/origin/develop"), SHA_A + "\n");
+		write(new File(root, ".git/refs/heads/feature/foo"), SHA_A + "\n");
+
+		HeadState head = HeadState.read(GitDirectory.locate(root));
+
+		assertNull(head.getBranch());
+		assertEquals(SHA_A, head.getSha1());
+		assertEquals(SHA_A, head.getHead());
+		assertEquals(new HashSet<>(Arrays.asList("develop", "feature/foo")), head.getBranches());
+	}
+
+	private static void write(File file, String content) throws IOException {
+		Files.createDirectories(file.getParentFile().toPath());
+		Files.write(file.toPath(), content.getBytes(UTF_8));
+	}
+}
@@ -0,0 +1,99 @@
+package com.e_gineering.maven.gitflowhelper.git;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class PackedRefsTest {
+
+	private static final String SHA_A = "a1b2c3d4e5f60718293a4b5c6d7e8f9001122334";
+	private static final String SHA_B = "a1b2c3d4e5f60718ffffffffffffffffffffffff"; // Shares SHA_A's index key.
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void findsBranchesByObjectId() throws Exception {
+		File file = write("# pack-refs with: peeled fully-peeled sorted \n" +
+				SHA_A + " refs/heads/master\n" +
+				SHA_B + " refs/heads/develop\n" +
+				SHA_A + " refs/remotes/origin/master\n" +
+				SHA_A + " refs/tags/1.0.0\n" +
+				"^" + SHA_B + "\n" +
+				SHA_A + " refs/pull/12/head\n");
+
+		PackedRefs packedRefs = PackedRefs.forFile(file);
+
+		assertEquals(new HashSet<>(Arrays.asList("refs/heads/master", "refs/remotes/origin/master")), new HashSet<>(packedRefs.refsFor(SHA_A)));
+		assertEquals(Collections.singletonList("refs/heads/develop"), packedRefs.refsFor(SHA_B));
+		assertTrue(packedRefs.refsFor("0000000000000000000000000000000000000000").isEmpty());
+		assertEquals(SHA_A, packedRefs.get("refs/tags/1.0.0"));
+		assertNull(packedRefs.get("refs/heads/feature"));
+	}
+
+	@Test
+	public void largeRefCount() throws Exception {
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			content.append(objectId(i)).append(" refs/remotes/origin/pr/").append(i).append('\n');
+		}
+		PackedRefs packedRefs = PackedRefs.forFile(write(content.toString()));
+
+		assertEquals(Collections.singletonList("refs/remotes/origin/pr/4242"), packedRefs.refsFor(objectId(4242)));
+	}
+
+	@Test
+	public void indexIsCachedUntilTheFileChanges() throws Exception {
+		File file = write(SHA_A + " refs/heads/master\n");
+		PackedRefs first = PackedRefs.forFile(file);
+
+		assertSame(first, PackedRefs.forFile(file));
+
+		Files.write(file.toPath(), (SHA_A + " refs/heads/develop\n").getBytes(UTF_8));
+		Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(file.lastModified() + 2000));
+		PackedRefs second = PackedRefs.forFile(file);
+
+		assertNotSame(first, second);
+		assertEquals(Collections.singletonList("refs/heads/develop"), second.refsFor(SHA_A));
+
+		assertTrue(file.delete());
+		assertNull(PackedRefs.forFile(file));
+	}
+
+	@Test(expected = GitReadException.class)
+	public void malformed() throws Exception {
+		PackedRefs.forFile(write("not-an-id refs/heads/master\n"));
+	}
+
+	private static String objectId(final int i) throws Exception {
+		StringBuilder hex = new StringBuilder();
+		for (byte b : MessageDigest.getInstance("SHA-1").digest(Integer.toString(i).getBytes(UTF_8))) {
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return hex.toString();
+	}
+
+	private File write(final String content) throws Exception {
+		File file = folder.newFile();
+		Files.write(file.toPath(), content.getBytes(UTF_8));
+		return file;
+	}
+}
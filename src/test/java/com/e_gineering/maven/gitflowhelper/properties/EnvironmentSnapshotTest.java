@@ -0,0 +1,45 @@
+package com.e_gineering.maven.gitflowhelper.properties;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class EnvironmentSnapshotTest {
+
+	@Test
+	public void snapshotIsACopy() {
+		Map<String, String> environment = new HashMap<>();
+		environment.put("GIT_BRANCH", "origin/develop");
+		EnvironmentSnapshot snapshot = new EnvironmentSnapshot(environment, true);
+		environment.put("GIT_BRANCH", "origin/master");
+
+		assertEquals("origin/develop", snapshot.get("GIT_BRANCH"));
+		assertNull(snapshot.get("git_branch"));
+	}
+
+	@Test
+	public void caseInsensitiveEnvironmentsAreUpperCased() {
+		Map<String, String> environment = new HashMap<>();
+		environment.put("Path", "C:\\Windows");
+
+		assertEquals("C:\\Windows", new EnvironmentSnapshot(environment, false).get("PATH"));
+	}
+
+	@Test
+	public void resolvesEnvPlaceholders() {
+		Map<String, String> environment = new HashMap<>();
+		environment.put("GIT_BRANCH", "origin/release/1.0");
+		Properties project = new Properties();
+		project.setProperty("branch", "${env.GIT_BRANCH}");
+
+		assertEquals("origin/release/1.0", PropertyResolver.resolveValue("${branch}", project, new EnvironmentSnapshot(environment, true)));
+	}
+}
@@ -0,0 +1,71 @@
+package com.e_gineering.maven.gitflowhelper.properties;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Times the PropertyResolver against the original (string rebuilding) implementation, on long values with many
+ * placeholders. Not run with the unit tests; run it with:
+ * <pre>
+ *     mvn test -Dtest=PropertyResolverBenchmark
+ * </pre>
+ */
+@RunWith(BlockJUnit4ClassRunner.class)
+public class PropertyResolverBenchmark {
+
+	private static final int[] PLACEHOLDERS = {1000, 5000, 20000};
+
+	private static final int RUNS = 3;
+
+	@Test
+	public void longValues() {
+		// Warm up both implementations before anything is timed.
+		for (int run = 0; run < 20; run++) {
+			time(500);
+		}
+
+		System.out.println(String.format("%12s %14s %14s", "placeholders", "original (ms)", "current (ms)"));
+		for (int placeholders : PLACEHOLDERS) {
+			long[] best = {Long.MAX_VALUE, Long.MAX_VALUE};
+			for (int run = 0; run < RUNS; run++) {
+				long[] times = time(placeholders);
+				best[0] = Math.min(best[0], times[0]);
+				best[1] = Math.min(best[1], times[1]);
+			}
+			System.out.println(String.format("%12d %14d %14d", placeholders, TimeUnit.NANOSECONDS.toMillis(best[0]),
+					TimeUnit.NANOSECONDS.toMillis(best[1])));
+		}
+	}
+
+	/**
+	 * @return The nanoseconds taken by the original and the current implementation, to resolve a value of the given
+	 * number of "-${long<i>}-${unknown<i>}" repetitions, where each long<i> expands to another placeholder.
+	 */
+	private static long[] time(int placeholders) {
+		Properties properties = new Properties();
+		StringBuilder value = new StringBuilder();
+		for (int i = 0; i < placeholders; i++) {
+			properties.setProperty("long" + i, "${short" + i + "}x");
+			properties.setProperty("short" + i, "xxx");
+			value.append("-${long").append(i).append("}-${unknown").append(i).append('}');
+		}
+		Properties environment = new Properties();
+
+		long start = System.nanoTime();
+		String original = com.e_gineering.maven.gitflowhelper.properties.baseline.PropertyResolver.resolveValue(value.toString(), properties, environment);
+		long originalTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		String current = PropertyResolver.resolveValue(value.toString(), properties, environment::getProperty);
+		long currentTime = System.nanoTime() - start;
+
+		assertEquals(original, current);
+		return new long[]{originalTime, currentTime};
+	}
+}
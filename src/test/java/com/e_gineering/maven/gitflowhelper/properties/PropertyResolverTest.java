@@ -0,0 +1,133 @@
+package com.e_gineering.maven.gitflowhelper.properties;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class PropertyResolverTest {
+
+	private static final String[] TOKENS = {"${", "}", "a", "b", "c", "d", "env.", "x", "$", "{", "-"};
+
+	private static final PropertyLookup ENV = key -> key.equals("a") ? "E" : null;
+
+	@Test
+	public void expansion() {
+		Properties properties = properties("version", "1.0", "name", "app-${version}", "nested", "${name}/${env.a}");
+
+		assertEquals("app-1.0", PropertyResolver.resolveValue("${name}", properties, ENV));
+		assertEquals("app-1.0/E", PropertyResolver.resolveValue("${nested}", properties, ENV));
+		assertEquals("E ${env.b} ${missing}", PropertyResolver.resolveValue("${env.a} ${env.b} ${missing}", properties, ENV));
+		assertEquals("${unterminated", PropertyResolver.resolveValue("${unterminated", properties, ENV));
+		assertEquals("", PropertyResolver.resolveValue(null, properties, ENV));
+	}
+
+	@Test
+	public void circularDefinitions() {
+		assertCircular("${a}", properties("a", "${a}"));
+		assertCircular("${a}", properties("a", "x${b}", "b", "${c}y", "c", "${a}"));
+		assertCircular("${b}", properties("a", "${b", "b", "${a}}"));
+
+		// As in the original implementation, any key met twice counts as circular.
+		assertCircular("${a}-${a}", properties("a", "1"));
+		assertCircular("${b}", properties("a", "1", "b", "${a}${a}"));
+		assertCircular("${missing}-${missing}", properties());
+	}
+
+	@Test
+	public void unresolvedPlaceholdersRemain() {
+		ExpansionBuffer buffer = new ExpansionBuffer(PropertyResolver.resolveValue("${env.GIT_BRANCH}", new Properties(), key -> null));
+		assertTrue(buffer.hasMoreLegalPlaceholders());
+
+		buffer = new ExpansionBuffer(PropertyResolver.resolveValue("${env.GIT_BRANCH}", new Properties(), key -> "develop"));
+		assertFalse(buffer.hasMoreLegalPlaceholders());
+		assertEquals("develop", buffer.toString());
+	}
+
+	/**
+	 * Compares the results, and the failures, with those of the original (string rebuilding) implementation, for
+	 * random values.
+	 */
+	@Test(timeout = 60000)
+	public void parityWithOriginalImplementation() {
+		Properties environment = properties("a", "E");
+		Random random = new Random(20240611L);
+		for (int run = 0; run < 20000; run++) {
+			Properties properties = new Properties();
+			for (String key : new String[]{"a", "b", "c", "d"}) {
+				if (random.nextInt(4) != 0) {
+					properties.setProperty(key, randomValue(random));
+				}
+			}
+			String value = randomValue(random);
+
+			assertEquals("Resolving '" + value + "' with " + properties,
+					outcome(() -> com.e_gineering.maven.gitflowhelper.properties.baseline.PropertyResolver.resolveValue(value, properties, environment)),
+					outcome(() -> PropertyResolver.resolveValue(value, properties, ENV)));
+		}
+	}
+
+	/**
+	 * Long values, with many placeholders, used to take time quadratic in their length.
+	 */
+	@Test(timeout = 10000)
+	public void longValues() {
+		Properties properties = new Properties();
+		StringBuilder value = new StringBuilder();
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 50000; i++) {
+			properties.setProperty("long" + i, "${short" + i + "}x");
+			properties.setProperty("short" + i, "xxx");
+			value.append("-${long").append(i).append("}-${unknown").append(i).append('}');
+			expected.append("-xxxx-${unknown").append(i).append('}');
+		}
+
+		assertEquals(expected.toString(), PropertyResolver.resolveValue(value.toString(), properties, ENV));
+	}
+
+	private static void assertCircular(String value, Properties properties) {
+		try {
+			PropertyResolver.resolveValue(value, properties, ENV);
+			fail("Expected a circular definition resolving '" + value + "'");
+		} catch (IllegalArgumentException iae) {
+			assertTrue(iae.getMessage(), iae.getMessage().startsWith("Circular property definition: "));
+		}
+	}
+
+	private static String randomValue(Random random) {
+		StringBuilder value = new StringBuilder();
+		for (int i = random.nextInt(7); i > 0; i--) {
+			value.append(TOKENS[random.nextInt(TOKENS.length)]);
+		}
+		return value.toString();
+	}
+
+	private static Properties properties(String... keysAndValues) {
+		Properties properties = new Properties();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+		}
+		return properties;
+	}
+
+	private static String outcome(Resolution resolution) {
+		try {
+			return resolution.resolve();
+		} catch (IllegalArgumentException iae) {
+			// ie: a circular definition, or ${} looked up as a system property.
+			return iae.getMessage();
+		}
+	}
+
+	private interface Resolution {
+		String resolve();
+	}
+}
@@ -0,0 +1,79 @@
+package com.e_gineering.maven.gitflowhelper.properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Properties;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class PropertySetCacheTest {
+
+	private static final PropertyLookup ENV = key -> null;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final PropertySetCache cache = new PropertySetCache();
+
+	@Test
+	public void loadedUntilChanged() throws Exception {
+		File file = folder.newFile("release.properties");
+		Files.write(file.toPath(), "db.url=jdbc:test\n".getBytes(ISO_8859_1));
+
+		Properties loaded = cache.load(file);
+		assertEquals("jdbc:test", loaded.getProperty("db.url"));
+
+		// Copies, so callers can't change what's cached.
+		loaded.setProperty("db.url", "changed");
+		assertEquals("jdbc:test", cache.load(new File(folder.getRoot(), "./release.properties")).getProperty("db.url"));
+
+		Files.write(file.toPath(), "db.url=jdbc:stage\n".getBytes(ISO_8859_1));
+		assertEquals(true, file.setLastModified(file.lastModified() + 2000));
+		assertEquals("jdbc:stage", cache.load(file).getProperty("db.url"));
+	}
+
+	@Test
+	public void resolutionsReusedWhileReferencedPropertiesAreUnchanged() {
+		Properties toInject = new Properties();
+		toInject.setProperty("url", "${host}/${artifactId}");
+		toInject.setProperty("host", "https://repo");
+
+		Properties module = new Properties();
+		module.setProperty("artifactId", "core");
+		module.setProperty("unrelated", "1");
+
+		Map<String, String> resolved = resolve(toInject, module);
+		assertEquals("https://repo/core", resolved.get("url"));
+
+		module.setProperty("unrelated", "2");
+		assertSame(resolved, resolve(toInject, module));
+
+		Properties other = new Properties();
+		other.setProperty("artifactId", "web");
+		Map<String, String> otherResolved = resolve(toInject, other);
+		assertNotSame(resolved, otherResolved);
+		assertEquals("https://repo/web", otherResolved.get("url"));
+		assertSame(resolved, resolve(toInject, module));
+
+		// A property the set referred to, but which wasn't set, now is.
+		toInject.setProperty("cache", "${cache.dir}");
+		assertEquals("${cache.dir}", resolve(toInject, module).get("cache"));
+		module.setProperty("cache.dir", "/tmp");
+		assertEquals("/tmp", resolve(toInject, module).get("cache"));
+	}
+
+	private Map<String, String> resolve(Properties toInject, Properties properties) {
+		return cache.resolve(toInject, "", PropertyTemplate::compile, PropertySnapshot.of(properties, ENV));
+	}
+}
@@ -0,0 +1,89 @@
+package com.e_gineering.maven.gitflowhelper.properties;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class PropertySetResolverTest {
+
+	private static final PropertyLookup ENV = key -> key.equals("HOME") ? "/home/ci" : null;
+
+	@Test
+	public void referencesWithinTheSet() {
+		Properties project = properties("version", "1.0", "argLine", "-ea");
+		Properties toInject = properties(
+				"url", "${host}/${path}",
+				"host", "https://${domain}",
+				"domain", "repo.example.com",
+				"path", "releases/${version}",
+				"argLine", "${argLine} -Xmx1g",
+				"cache", "${env.HOME}/${missing}",
+				"${version}.tag", "v${version}");
+
+		Map<String, String> resolved = resolve(toInject, "", project);
+
+		assertEquals("https://repo.example.com/releases/1.0", resolved.get("url"));
+		assertEquals("https://repo.example.com", resolved.get("host"));
+		assertEquals("-ea -Xmx1g", resolved.get("argLine"));
+		assertEquals("/home/ci/${missing}", resolved.get("cache"));
+		assertEquals("v1.0", resolved.get("1.0.tag"));
+		assertEquals(7, resolved.size());
+	}
+
+	@Test
+	public void keyPrefix() {
+		Properties project = properties("name", "project");
+		Map<String, String> resolved = resolve(properties("name", "set", "a", "${name}", "b", "${x.name}"), "x.", project);
+
+		// References are to the prefixed keys.
+		assertEquals("set", resolved.get("x.name"));
+		assertEquals("project", resolved.get("x.a"));
+		assertEquals("set", resolved.get("x.b"));
+	}
+
+	@Test
+	public void circularDefinition() {
+		try {
+			resolve(properties("a", "${b}", "b", "x${c}", "c", "${a}"), "", new Properties());
+			fail("Expected a circular definition");
+		} catch (IllegalArgumentException iae) {
+			assertTrue(iae.getMessage(), iae.getMessage().startsWith("Circular property definition: "));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void largeSets() {
+		Properties toInject = new Properties();
+		for (int i = 1; i < 5000; i++) {
+			toInject.setProperty("key" + i, "${key" + (i - 1) + "}.");
+		}
+		toInject.setProperty("key0", "");
+
+		Map<String, String> resolved = resolve(toInject, "", new Properties());
+
+		assertEquals(5000, resolved.size());
+		assertEquals(4999, resolved.get("key4999").length());
+	}
+
+	private static Map<String, String> resolve(Properties toInject, String keyPrefix, Properties project) {
+		Map<String, PropertyTemplate> templates = new HashMap<>();
+		return PropertySetResolver.resolve(toInject, keyPrefix, expression -> templates.computeIfAbsent(expression, PropertyTemplate::compile), PropertySnapshot.of(project, ENV));
+	}
+
+	private static Properties properties(String... keysAndValues) {
+		Properties properties = new Properties();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+		}
+		return properties;
+	}
+}
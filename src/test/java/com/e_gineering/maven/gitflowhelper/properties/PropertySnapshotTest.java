@@ -0,0 +1,96 @@
+package com.e_gineering.maven.gitflowhelper.properties;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class PropertySnapshotTest {
+
+	private static final PropertyLookup ENV = key -> key.equals("HOME") ? "/home/ci" : null;
+
+	@Test
+	public void layers() {
+		Properties project = new Properties();
+		project.setProperty("user.dir", "project");
+		project.setProperty("version", "1.0");
+
+		PropertySnapshot snapshot = PropertySnapshot.of(project, ENV);
+
+		assertEquals("project", snapshot.get("user.dir"));
+		assertEquals(System.getProperty("java.version"), snapshot.get("java.version"));
+		assertEquals("/home/ci", snapshot.get("env.HOME"));
+		assertNull(snapshot.get("HOME"));
+		assertNull(snapshot.get("missing"));
+
+		// Later changes aren't seen.
+		project.setProperty("version", "2.0");
+		assertEquals("1.0", snapshot.get("version"));
+		assertEquals("1.0", PropertyResolver.resolveValue("${version}", snapshot));
+		assertEquals("2.0", PropertyResolver.resolveValue("${version}", PropertySnapshot.of(project, ENV)));
+	}
+
+	@Test
+	public void publish() {
+		Properties project = new Properties();
+		project.setProperty("a", "1");
+
+		Map<String, String> values = new LinkedHashMap<>();
+		values.put("a", "2");
+		values.put("b", "3");
+
+		Map<String, String> replaced = PropertySnapshot.publish(project, values);
+
+		assertEquals("2", project.getProperty("a"));
+		assertEquals("3", project.getProperty("b"));
+		assertEquals(1, replaced.size());
+		assertEquals("1", replaced.get("a"));
+	}
+
+	/**
+	 * A snapshot taken while a set is being published sees either all of it, or none of it.
+	 */
+	@Test(timeout = 60000)
+	public void publishedAtomically() throws Exception {
+		Properties project = new Properties();
+		Map<String, String> first = new LinkedHashMap<>();
+		Map<String, String> second = new LinkedHashMap<>();
+		for (int i = 0; i < 100; i++) {
+			first.put("key" + i, "first");
+			second.put("key" + i, "second");
+		}
+		PropertySnapshot.publish(project, first);
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> writer = executor.submit(() -> {
+				for (int i = 0; i < 2000; i++) {
+					PropertySnapshot.publish(project, i % 2 == 0 ? second : first);
+				}
+			});
+
+			while (!writer.isDone()) {
+				PropertySnapshot snapshot = PropertySnapshot.of(project, ENV);
+				String value = snapshot.get("key0");
+				for (int i = 1; i < 100; i++) {
+					assertEquals(value, snapshot.get("key" + i));
+				}
+			}
+			writer.get();
+		} finally {
+			executor.shutdownNow();
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+}
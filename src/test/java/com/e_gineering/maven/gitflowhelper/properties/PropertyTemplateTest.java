@@ -0,0 +1,99 @@
+package com.e_gineering.maven.gitflowhelper.properties;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class PropertyTemplateTest {
+
+	private static final String[] TOKENS = {"${", "}", "a", "b", "c", "d", "env.", "x", "$", "{", "-"};
+
+	private static final PropertyLookup ENV = key -> key.equals("a") ? "E" : null;
+
+	@Test
+	public void resolve() {
+		Properties properties = new Properties();
+		properties.setProperty("version", "1.0");
+		properties.setProperty("name", "app-${version}");
+
+		PropertyTemplate template = PropertyTemplate.compile("${name}/${env.a}/${missing}/${");
+		assertFalse(template.isLiteral());
+		assertEquals("app-1.0/E/${missing}/${", template.resolve(properties, ENV));
+
+		properties.setProperty("version", "2.0");
+		assertEquals("app-2.0/E/${missing}/${", template.resolve(properties, ENV));
+		assertEquals("2.0/E", PropertyTemplate.compile("${version}/${env.a}").resolve(properties, ENV));
+		assertEquals("Circular property definition: version=2.0 -> version=2.0", outcome(() -> PropertyTemplate.compile("${version}-${version}").resolve(properties, ENV)));
+
+		assertTrue(PropertyTemplate.compile("(origin/)?feature/.*").isLiteral());
+		assertEquals("", PropertyTemplate.compile(null).resolve(properties, ENV));
+	}
+
+	@Test
+	public void cachedPerSession() {
+		MavenSession session = session();
+
+		PropertyTemplate template = PropertyTemplate.forSession(session, "${env.GIT_BRANCH}");
+		assertSame(template, PropertyTemplate.forSession(session, "${env.GIT_BRANCH}"));
+		assertNotSame(template, PropertyTemplate.forSession(session(), "${env.GIT_BRANCH}"));
+		assertEquals("", PropertyTemplate.forSession(session, null).resolve(new Properties(), ENV));
+	}
+
+	/**
+	 * Compares the results with those of the PropertyResolver, for random values.
+	 */
+	@Test(timeout = 60000)
+	public void parityWithPropertyResolver() {
+		Random random = new Random(20240612L);
+		for (int run = 0; run < 20000; run++) {
+			Properties properties = new Properties();
+			for (String key : new String[]{"a", "b", "c", "d"}) {
+				if (random.nextInt(4) != 0) {
+					properties.setProperty(key, randomValue(random));
+				}
+			}
+			String value = randomValue(random);
+
+			assertEquals("Resolving '" + value + "' with " + properties, outcome(() -> PropertyResolver.resolveValue(value, properties, ENV)),
+					outcome(() -> PropertyTemplate.compile(value).resolve(properties, ENV)));
+		}
+	}
+
+	private static String outcome(Resolution resolution) {
+		try {
+			return resolution.resolve();
+		} catch (IllegalArgumentException iae) {
+			return iae.getMessage();
+		}
+	}
+
+	private static String randomValue(Random random) {
+		StringBuilder value = new StringBuilder();
+		for (int i = random.nextInt(7); i > 0; i--) {
+			value.append(TOKENS[random.nextInt(TOKENS.length)]);
+		}
+		return value.toString();
+	}
+
+	private static MavenSession session() {
+		return new MavenSession(null, new DefaultRepositorySystemSession(), new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult());
+	}
+
+	private interface Resolution {
+		String resolve();
+	}
+}
@@ -0,0 +1,10 @@
+package com.e_gineering.stub.c;
+
+/**
+ * One of several modules of the parallel-stub, built concurrently.
+ */
+public class ModuleC {
+	public static void main(String[] args) {
+		System.out.println("Hello from module c.");
+	}
+}